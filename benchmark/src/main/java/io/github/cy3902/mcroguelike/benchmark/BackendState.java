@@ -0,0 +1,123 @@
+package io.github.cy3902.mcroguelike.benchmark;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
+import io.github.cy3902.mcroguelike.sql.MemorySQL;
+import io.github.cy3902.mcroguelike.sql.MySQL;
+import io.github.cy3902.mcroguelike.sql.SQLite;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 每次測試建立一個資料庫並預先寫入隊伍、路徑與地圖位置資料
+ * MySQL 需要以 -p backend=mysql 指定，並以系統屬性 mcroguelike.mysql.host、port、database、username、password 設定連線
+ */
+@State(Scope.Benchmark)
+public class BackendState {
+    static final String MEMBER_TABLE = "mcroguelike_party_member";
+    static final String PATH_TABLE = "mcroguelike_party_path";
+    static final String MAP_TABLE = "mcroguelike_map_location";
+
+    @Param({"memory", "sqlite"})
+    public String backend;
+
+    @Param({"STRING", "BINARY"})
+    public String uuidStorage;
+
+    @Param({"1000"})
+    public int parties;
+
+    @Param({"4"})
+    public int membersPerParty;
+
+    @Param({"32"})
+    public int maps;
+
+    AbstractSQL sql;
+    UUID[] partyIds;
+    UUID[] memberIds;
+    String[] mapNames;
+    private File databaseFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        AbstractSQL.UuidStorage storage = AbstractSQL.UuidStorage.valueOf(uuidStorage);
+        switch (backend) {
+            case "memory":
+                sql = new MemorySQL(storage);
+                break;
+            case "sqlite":
+                databaseFile = File.createTempFile("mcroguelike-bench", ".db");
+                sql = new SQLite(databaseFile.getAbsolutePath(), storage);
+                break;
+            case "mysql":
+                sql = new MySQL(
+                    System.getProperty("mcroguelike.mysql.host", "localhost"),
+                    Integer.getInteger("mcroguelike.mysql.port", 3306),
+                    System.getProperty("mcroguelike.mysql.database", "mcroguelike_bench"),
+                    System.getProperty("mcroguelike.mysql.username", "root"),
+                    System.getProperty("mcroguelike.mysql.password", ""),
+                    Integer.getInteger("mcroguelike.mysql.pool_size", 10),
+                    storage
+                );
+                for (String table : new String[]{MEMBER_TABLE, PATH_TABLE, MAP_TABLE}) {
+                    sql.clearTables(table);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+
+        partyIds = new UUID[parties];
+        memberIds = new UUID[parties * membersPerParty];
+        for (int i = 0; i < parties; i++) {
+            partyIds[i] = UUID.randomUUID();
+            sql.execute("INSERT INTO " + PATH_TABLE + " (party_uuid, path) VALUES (?, ?)",
+                new Object[]{partyIds[i], UUID.randomUUID().toString()});
+            for (int j = 0; j < membersPerParty; j++) {
+                UUID member = UUID.randomUUID();
+                memberIds[i * membersPerParty + j] = member;
+                sql.execute("INSERT INTO " + MEMBER_TABLE + " (party_uuid, member_uuid, is_leader) VALUES (?, ?, ?)",
+                    new Object[]{partyIds[i], member, j == 0 ? "true" : "false"});
+            }
+        }
+        mapNames = new String[maps];
+        for (int i = 0; i < maps; i++) {
+            mapNames[i] = "map_" + i;
+            sql.execute("INSERT INTO " + MAP_TABLE + " (map, X, Y, Z) VALUES (?, ?, ?, ?)",
+                new Object[]{mapNames[i], i * 1000.0, 64.0, 0.0});
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sql.close();
+        if (databaseFile != null) {
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                Files.deleteIfExists(new File(databaseFile.getPath() + suffix).toPath());
+            }
+        }
+    }
+
+    UUID randomParty() {
+        return partyIds[ThreadLocalRandom.current().nextInt(partyIds.length)];
+    }
+
+    UUID randomMember() {
+        return memberIds[ThreadLocalRandom.current().nextInt(memberIds.length)];
+    }
+
+    String randomMap() {
+        return mapNames[ThreadLocalRandom.current().nextInt(mapNames.length)];
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.cy3902.mcroguelike.benchmark;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地圖位置的讀寫，與 MapLocation 使用相同的語句
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapLocationBenchmark {
+
+    /**
+     * 載入地圖時讀取位置
+     */
+    @Benchmark
+    public double[] loadLocation(BackendState state) {
+        return state.sql.queryFirst(
+            "SELECT X, Y, Z FROM " + BackendState.MAP_TABLE + " WHERE map = ?",
+            new Object[]{state.randomMap()},
+            rs -> new double[]{rs.getDouble("X"), rs.getDouble("Y"), rs.getDouble("Z")}
+        );
+    }
+
+    /**
+     * 以單一 upsert 語句寫入位置，並等待寫入佇列完成
+     */
+    @Benchmark
+    public int saveLocation(BackendState state) {
+        AbstractSQL sql = state.sql;
+        return sql.executeAsync(
+            sql.upsert(BackendState.MAP_TABLE, new String[]{"map", "X", "Y", "Z"}, new String[]{"map"}),
+            new Object[]{state.randomMap(), ThreadLocalRandom.current().nextInt(-30000, 30000), 64, 0}
+        ).join();
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.cy3902.mcroguelike.benchmark;
+
+import io.github.cy3902.mcroguelike.party.PartyWriteBehind;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 隊伍資料的讀寫：玩家加入時以成員查詢隊伍，以及經由延遲寫入完成的建立、換隊長與解散
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class WriteBehindState {
+        PartyWriteBehind writeBehind;
+
+        @Setup(Level.Trial)
+        public void setUp(BackendState backend) {
+            writeBehind = new PartyWriteBehind(backend.sql);
+        }
+    }
+
+    /**
+     * 玩家加入伺服器時查詢所屬的隊伍
+     */
+    @Benchmark
+    public UUID lookupPartyByMember(BackendState state) {
+        return state.sql.queryFirst(
+            "SELECT party_uuid FROM `" + BackendState.MEMBER_TABLE + "` WHERE member_uuid = ?",
+            new Object[]{state.randomMember()},
+            rs -> state.sql.getUuid(rs, "party_uuid")
+        );
+    }
+
+    /**
+     * 一個隊伍的完整生命週期，等待合併後的批次寫入完成
+     */
+    @Benchmark
+    public void partyLifecycle(BackendState state, WriteBehindState writeBehindState) {
+        PartyWriteBehind writeBehind = writeBehindState.writeBehind;
+        UUID partyID = UUID.randomUUID();
+        UUID[] members = new UUID[state.membersPerParty];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = UUID.randomUUID();
+            writeBehind.saveMember(partyID, members[i], i == 0);
+        }
+        if (members.length > 1) {
+            writeBehind.saveMember(partyID, members[0], false);
+            writeBehind.saveMember(partyID, members[1], true);
+        }
+        writeBehind.flush().join();
+        for (UUID member : members) {
+            writeBehind.removeMember(partyID, member);
+        }
+        writeBehind.flush().join();
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.cy3902.mcroguelike.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 隊伍路徑的讀寫，與 PartyPathManager 使用相同的語句
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathBenchmark {
+
+    /**
+     * 開啟路徑介面時查詢隊伍的路徑
+     */
+    @Benchmark
+    public String lookupPath(BackendState state) {
+        return state.sql.queryFirst(
+            "SELECT path FROM " + BackendState.PATH_TABLE + " WHERE party_uuid = ?",
+            new Object[]{state.randomParty()},
+            rs -> rs.getString("path")
+        );
+    }
+
+    /**
+     * 遊戲開始時寫入新的路徑，結束時刪除
+     */
+    @Benchmark
+    public void assignAndClearPath(BackendState state) {
+        UUID partyID = UUID.randomUUID();
+        state.sql.executeAsync(
+            "INSERT INTO " + BackendState.PATH_TABLE + " (party_uuid, path) VALUES (?, ?)",
+            new Object[]{partyID, UUID.randomUUID().toString()}
+        );
+        state.sql.executeAsync(
+            "DELETE FROM " + BackendState.PATH_TABLE + " WHERE party_uuid = ?",
+            new Object[]{partyID}
+        ).join();
+    }
+}
@@ -10,6 +10,7 @@ import io.github.cy3902.mcroguelike.config.ConfigFile;
 import io.github.cy3902.mcroguelike.config.Lang;
 import io.github.cy3902.mcroguelike.event.OnJoin;
 import io.github.cy3902.mcroguelike.event.OnQuit;
+import io.github.cy3902.mcroguelike.event.OnRoomBlockChange;
 import io.github.cy3902.mcroguelike.files.MapFile;
 import io.github.cy3902.mcroguelike.files.PathFile;
 import io.github.cy3902.mcroguelike.files.RoomFile;
@@ -19,9 +20,16 @@ import io.github.cy3902.mcroguelike.manager.game.GameStartManager;
 import io.github.cy3902.mcroguelike.path.Path;
 import io.github.cy3902.mcroguelike.room.AnnihilationRoom;
 import io.github.cy3902.mcroguelike.room.SurvivalRoom;
+import io.github.cy3902.mcroguelike.schem.SchemCache;
+import io.github.cy3902.mcroguelike.schem.SchemIndex;
+import io.github.cy3902.mcroguelike.schem.SchemLoader;
+import io.github.cy3902.mcroguelike.schem.PasteScheduler;
+import io.github.cy3902.mcroguelike.manager.room.RoomInstancePool;
 import io.github.cy3902.mcroguelike.utils.FileUtils;
 import io.github.cy3902.mcroguelike.utils.MsgUtils;
 import io.github.cy3902.mcroguelike.party.Party;
+import io.github.cy3902.mcroguelike.party.PartyRepository;
+import io.github.cy3902.mcroguelike.party.PartyWriteBehind;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -33,10 +41,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public final class MCRogueLike extends JavaPlugin {
     private static MCRogueLike mcRogueLike;
+    private static final long PASTE_SHUTDOWN_TIMEOUT_SECONDS = 30;
     private Lang lang;
     private MapFile mapFile;
     private PathFile pathFile;
@@ -45,7 +55,14 @@ public final class MCRogueLike extends JavaPlugin {
 
     private Lang.LangType langType;
     private AbstractSQL sql;
+    private PartyWriteBehind partyWriteBehind;
+    private PartyRepository partyRepository;
     private ConfigFile configFile;
+    private SchemIndex schemIndex;
+    private SchemCache schemCache;
+    private SchemLoader schemLoader;
+    private PasteScheduler pasteScheduler;
+    private RoomInstancePool roomInstancePool;
 
     private final MsgUtils msgUtils = new MsgUtils(this);
 
@@ -82,12 +99,40 @@ public final class MCRogueLike extends JavaPlugin {
         } catch (IOException e) {
             getLogger().log(Level.SEVERE, "Failed to initialize plugin", e);
         }
+        // 不保存狀態的監聽器只註冊一次，重新載入時不會重複註冊
+        Bukkit.getPluginManager().registerEvents(new OnRoomBlockChange(), this);
     }
 
     @Override
     public void onDisable() {
         // Clean up resources if needed
-        sql = null;
+        if (partyWriteBehind != null) {
+            partyWriteBehind.shutdown();
+            partyWriteBehind = null;
+        }
+        partyRepository = null;
+        if (sql != null) {
+            sql.close();
+            sql = null;
+        }
+        if (roomInstancePool != null) {
+            roomInstancePool.shutdown();
+            roomInstancePool = null;
+        }
+        if (pasteScheduler != null) {
+            // 等待實例池送出的格位清除完成，否則貼上的結構會留在世界中
+            pasteScheduler.shutdown();
+            if (!pasteScheduler.awaitTermination(PASTE_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                getLogger().log(Level.WARNING, "Pending arena clears did not finish before shutdown");
+            }
+            pasteScheduler = null;
+        }
+        if (schemLoader != null) {
+            schemLoader.shutdown();
+            schemLoader = null;
+        }
+        schemCache = null;
+        schemIndex = null;
         lang = null;
         configFile = null;
     }
@@ -145,12 +190,40 @@ public final class MCRogueLike extends JavaPlugin {
 
 
         // Initialize configuration files
+        if (roomInstancePool != null) {
+            roomInstancePool.shutdown();
+        }
+        // 重新載入會關閉舊的資料庫，先送出尚未寫入的隊伍變更
+        if (partyWriteBehind != null) {
+            partyWriteBehind.shutdown();
+        }
         configFile = new ConfigFile(this);
         configFile.reload();
+        partyWriteBehind = new PartyWriteBehind(sql);
+        partyWriteBehind.start(configFile.getWriteBehindInterval());
+        partyRepository = new PartyRepository(sql, partyWriteBehind, configFile.getPartyCacheMaxOffline());
+        partyRepository.load();
+        schemIndex = new SchemIndex();
+        schemIndex.load();
+        schemCache = new SchemCache(configFile.getSchemCacheMaxMemory());
+        if (schemLoader != null) {
+            schemLoader.shutdown();
+        }
+        schemLoader = new SchemLoader(schemCache, configFile.getSchemLoaderThreads());
+        if (pasteScheduler != null) {
+            // 舊的排程器會先執行完已排隊的格位清除再關閉
+            pasteScheduler.shutdown();
+        }
+        pasteScheduler = new PasteScheduler(configFile.getPasteThreads(), configFile.getPasteMaxConcurrentPerWorld());
         lang = new Lang("Lang", langType + ".yml");
         lang.reload();
+        MapFile previousMapFile = mapFile;
         mapFile = new MapFile();
         mapFile.reloadAll();
+        if (previousMapFile != null) {
+            // 進行中的遊戲與實例池仍佔用舊的格位
+            mapFile.adoptArenaSlots(previousMapFile);
+        }
         pathFile = new PathFile();
         pathFile.reloadAll();
         spawnpointFile = new SpawnpointFile();
@@ -158,6 +231,17 @@ public final class MCRogueLike extends JavaPlugin {
         roomFile = new RoomFile();
         roomFile.reloadAll();
 
+        // 預熱房間使用的結構
+        List<String> structureNames = new ArrayList<>();
+        for (AbstractRoom room : roomFile.getAllRooms().values()) {
+            structureNames.add(room.getStructureName());
+        }
+        schemLoader.warmUp(structureNames);
+
+        // 預先貼上熱門房間的實例
+        roomInstancePool = new RoomInstancePool(configFile.getRoomPoolSettings(), configFile.getRoomPoolDemandWindow());
+        roomInstancePool.start(configFile.getRoomPoolMaintenanceInterval());
+
         //註冊Path
         pathRegister.put("Path", Path.class);
 
@@ -177,9 +261,12 @@ public final class MCRogueLike extends JavaPlugin {
         // Register commands
         registerCommands();
 
-        // 重新載入所有玩家的party
+        // 以啟動時讀入的隊伍資料還原在線玩家的party，不在索引中的玩家才逐一查詢
+        partyRepository.restoreOnlineParties();
         for (Player player : Bukkit.getOnlinePlayers()) {
-            OnJoin.reloadParty(player);
+            if (!playerPartyRegister.containsKey(player.getUniqueId())) {
+                OnJoin.reloadParty(player);
+            }
         }
     }
 
@@ -223,6 +310,14 @@ public final class MCRogueLike extends JavaPlugin {
         this.sql = sql;
     }
 
+    public PartyWriteBehind getPartyWriteBehind() {
+        return partyWriteBehind;
+    }
+
+    public PartyRepository getPartyRepository() {
+        return partyRepository;
+    }
+
 
     public String color(String msg) {
         return msgUtils.msg(msg);
@@ -248,6 +343,30 @@ public final class MCRogueLike extends JavaPlugin {
         return spawnpointFile;
     }
 
+    public ConfigFile getConfigFile() {
+        return configFile;
+    }
+
+    public SchemIndex getSchemIndex() {
+        return schemIndex;
+    }
+
+    public SchemCache getSchemCache() {
+        return schemCache;
+    }
+
+    public SchemLoader getSchemLoader() {
+        return schemLoader;
+    }
+
+    public PasteScheduler getPasteScheduler() {
+        return pasteScheduler;
+    }
+
+    public RoomInstancePool getRoomInstancePool() {
+        return roomInstancePool;
+    }
+
     // 獲取Party註冊
     public HashMap<String, Class<? extends AbstractPath>> getPathRegister() {
         return pathRegister;
@@ -2,6 +2,7 @@ package io.github.cy3902.mcroguelike.abstracts;
 
 import org.bukkit.Bukkit;
 
+import io.github.cy3902.mcroguelike.map.ArenaSlotAllocator;
 import io.github.cy3902.mcroguelike.map.MapLocation;
 import io.github.cy3902.mcroguelike.utils.LocationUtils;
 
@@ -27,6 +28,7 @@ public class AbstractMap {
     protected String weather;             // 天氣狀態
     protected boolean allowExplosions;    // 允許爆炸
     protected MapLocation mapLocation;  // 地圖位置
+    protected ArenaSlotAllocator arenaSlotAllocator;  // 競技場格位分配器
 
     /**
      * 建構子，初始化地圖的所有設定
@@ -40,10 +42,12 @@ public class AbstractMap {
      * @param pvp PVP設定
      * @param weather 天氣設定
      * @param allowExplosions 爆炸允許設定
+     * @param arenaSlotsX 競技場 X 方向格位數量
+     * @param arenaSlotsZ 競技場 Z 方向格位數量
      */
     protected AbstractMap(String name, String structureSpawnPoint, int structureSpawnSeparation, boolean mobGriefing, boolean doDaylightCycle, 
                          boolean doWeatherCycle, boolean keepInventory, boolean doMobSpawning, 
-                         boolean pvp, String weather, boolean allowExplosions) {
+                         boolean pvp, String weather, boolean allowExplosions, int arenaSlotsX, int arenaSlotsZ) {
         this.name = name;
         this.structureSpawnPoint = LocationUtils.stringToLocation(Bukkit.getWorld(name), structureSpawnPoint);
         this.structureSpawnSeparation = structureSpawnSeparation;
@@ -56,6 +60,7 @@ public class AbstractMap {
         this.weather = weather;
         this.allowExplosions = allowExplosions;
         this.mapLocation = new MapLocation(this);
+        this.arenaSlotAllocator = new ArenaSlotAllocator(this, arenaSlotsX, arenaSlotsZ);
     }
 
     /**
@@ -159,9 +164,20 @@ public class AbstractMap {
         return mapLocation;
     }
 
-    public void updateMapLocation() {
-        Location location = mapLocation.getLocation();
-        location.setX(location.getX() + structureSpawnSeparation);
-        mapLocation.setLocation(location);
+    /**
+     * 獲取競技場格位分配器
+     * @return 格位分配器
+     */
+    public ArenaSlotAllocator getArenaSlotAllocator() {
+        return arenaSlotAllocator;
+    }
+
+    /**
+     * 沿用重新載入前的格位分配器，使用中的格位不會被當作空閒而重複租用
+     * @param arenaSlotAllocator 重新載入前的格位分配器
+     */
+    public void setArenaSlotAllocator(ArenaSlotAllocator arenaSlotAllocator) {
+        arenaSlotAllocator.moveTo(this);
+        this.arenaSlotAllocator = arenaSlotAllocator;
     }
 }
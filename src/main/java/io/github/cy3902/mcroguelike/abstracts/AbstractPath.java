@@ -3,7 +3,13 @@ package io.github.cy3902.mcroguelike.abstracts;
 import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.party.Party;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * AbstractsPath 是抽象路徑類別，定義了路徑的基本屬性和行為。
@@ -20,6 +26,7 @@ public abstract class AbstractPath {
     protected int maxPlayer;
     protected int minPlayer;
     protected List<UUID> partyMembers;
+    protected long seed;
     /**
      * 建構子，初始化路徑類別
      * @param pathId 路徑ID
@@ -70,9 +77,25 @@ public abstract class AbstractPath {
     }
 
     /**
-     * 生成樹狀結構
+     * 以新的隨機種子生成樹狀結構
      */
-    public abstract void generateTree();
+    public void generateTree() {
+        generateTree(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * 以指定的種子生成樹狀結構，相同的種子與設定會生成相同的節點
+     * @param seed 種子
+     */
+    public abstract void generateTree(long seed);
+
+    /**
+     * 獲取生成路徑時使用的種子
+     * @return 種子
+     */
+    public long getSeed() {
+        return seed;
+    }
 
 
     /**
@@ -85,13 +108,14 @@ public abstract class AbstractPath {
 
     /**
      * 獲取隨機的分支數
+     * @param random 拓撲的亂數串流，相同種子會得到相同的結果
      * @param maxPossible 最大可能的分支數
      * @return 隨機的分支數
      */
-    protected int getRandomBranchCount(int maxPossible) {
+    protected int getRandomBranchCount(SplittableRandom random, int maxPossible) {
         if (maxPossible <= 0) return 0;
         if (maxPossible == 1) return 1;
-        return new Random().nextInt(maxPossible) + 1;
+        return random.nextInt(maxPossible) + 1;
     }
 
     /**
@@ -189,6 +213,38 @@ public abstract class AbstractPath {
      */
     public abstract boolean convertPathFromJson(String json);
 
+    /**
+     * 將路徑逐一寫出為 JSON
+     * @param party 玩家
+     * @param writer 目的地
+     * @throws IOException 寫入失敗時拋出
+     */
+    public abstract void writeJson(Party party, Writer writer) throws IOException;
+
+    /**
+     * 從 JSON 逐一讀取路徑
+     * @param reader 來源
+     * @return 是否讀取成功
+     * @throws IOException 讀取來源失敗時拋出
+     */
+    public abstract boolean readJson(Reader reader) throws IOException;
+
+    /**
+     * 將路徑寫出為二進位格式
+     * @param party 玩家，為 null 時保存讀取時的隊伍成員
+     * @param out 目的地
+     * @throws IOException 寫入失敗時拋出
+     */
+    public abstract void writeBinary(Party party, DataOutput out) throws IOException;
+
+    /**
+     * 讀取二進位格式的路徑
+     * @param in 來源
+     * @return 是否讀取成功
+     * @throws IOException 檔案損毀或版本不支援時拋出
+     */
+    public abstract boolean readBinary(DataInput in) throws IOException;
+
 
     /**
      * 獲取指定層級的節點數
@@ -203,6 +259,19 @@ public abstract class AbstractPath {
      */
     public abstract Map<Integer, List<AbstractsNode>> getAllLevelNodes();
 
+    /**
+     * 獲取層級數量
+     * @return 層級數量，包含根節點的第 0 層
+     */
+    public abstract int getLevelCount();
+
+    /**
+     * 根據節點ID獲取節點
+     * @param id 節點ID
+     * @return 節點，不存在時為 null
+     */
+    public abstract AbstractsNode getNodeById(int id);
+
     
 
 
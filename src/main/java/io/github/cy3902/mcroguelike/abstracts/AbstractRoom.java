@@ -3,13 +3,17 @@ package io.github.cy3902.mcroguelike.abstracts;
 import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.manager.room.ScoreManager;
 import io.github.cy3902.mcroguelike.manager.room.SpawnPointManager;
+import io.github.cy3902.mcroguelike.map.ArenaSlot;
+import io.github.cy3902.mcroguelike.schem.PlacementPlan;
 import io.github.cy3902.mcroguelike.schem.Schem;
+import io.github.cy3902.mcroguelike.schem.SchemCache;
 import io.github.cy3902.mcroguelike.utils.LocationUtils;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -84,6 +88,7 @@ public abstract class AbstractRoom {
 
     private SpawnPointManager spawnPointManager;
     private ScoreManager scoreManager;
+    private volatile PlacementPlan placementPlan;
 
     /**
      * 建構子，初始化關卡
@@ -138,23 +143,84 @@ public abstract class AbstractRoom {
         return roomId;
     }
 
+    /**
+     * 非同步載入並貼上關卡結構，結構解析與貼上都不在主執行緒進行
+     * @param location 位置
+     * @return 貼上成功時為結構，失敗時為 null；結果在伺服器主執行緒回報
+     */
+    public CompletableFuture<Schem> loadSchematicsAsync(Location location) {
+        return loadSchematicsAsync(location, 0);
+    }
+
+    /**
+     * 非同步載入並以指定角度貼上關卡結構
+     * @param location 位置
+     * @param rotation 旋轉角度，必須是 90 的倍數
+     * @return 貼上成功時為結構，失敗時為 null；結果在伺服器主執行緒回報
+     */
+    public CompletableFuture<Schem> loadSchematicsAsync(Location location, int rotation) {
+        return loadSchematicsAsync(location, rotation, null);
+    }
+
+    /**
+     * 非同步載入並貼上關卡結構到競技場格位，貼上前先載入並鎖定範圍內的區塊
+     * @param slot 競技場格位
+     * @return 貼上成功時為結構，失敗時為 null；結果在伺服器主執行緒回報
+     */
+    public CompletableFuture<Schem> loadSchematicsAsync(ArenaSlot slot) {
+        return loadSchematicsAsync(slot.getLocation(), 0, slot);
+    }
+
+    private CompletableFuture<Schem> loadSchematicsAsync(Location location, int rotation, ArenaSlot slot) {
+        if (!SchemCache.getSchemFile(structureName).exists()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return Schem.loadAsync(structureName, location.getWorld())
+                .thenComposeAsync(schem -> {
+                    if (schem.getEntry() == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    PlacementPlan.Variant variant = getPlacementPlan(schem.getEntry()).getVariant(rotation);
+                    CompletableFuture<Void> ready = CompletableFuture.completedFuture(null);
+                    if (slot != null) {
+                        // 記錄結構範圍並鎖定區塊，歸還格位時清除
+                        slot.setFootprint(variant.getFootprintMin(location), variant.getFootprintMax(location));
+                        ready = slot.pinChunks(mcRogueLike.getConfigFile().getChunkPreloadPerTick());
+                    }
+                    return ready.thenCompose(v -> schem.paste(location, variant))
+                            .thenApply(success -> success ? schem : null);
+                }, mcRogueLike.getSchemLoader().getMainThreadExecutor())
+                .exceptionally(e -> {
+                    mcRogueLike.getLogger().log(Level.SEVERE, "Failed to load schematic: " + structureName, e);
+                    return null;
+                });
+    }
+
+    /**
+     * 取得關卡的放置計畫，結構或生成點變更時重新編譯
+     * @param entry 結構快取項目
+     * @return 放置計畫
+     */
+    public PlacementPlan getPlacementPlan(SchemCache.Entry entry) {
+        PlacementPlan plan = placementPlan;
+        if (plan == null || !plan.isValidFor(entry, spawnPoints)) {
+            plan = PlacementPlan.compile(entry, playerSpawnPoint, spawnPoints);
+            placementPlan = plan;
+        }
+        return plan;
+    }
+
     /**
      * 載入關卡結構
      * @param location 位置
      * @param callback 回調函數，當結構生成完成時調用
      */
     public void loadSchematics(Location location, Consumer<Boolean> callback) {
-        //載入結構
-        File schemFile = new File(mcRogueLike.getDataFolder() + "/schematics/" + structureName + ".schem");
-        if (!schemFile.exists()) {
+        loadSchematicsAsync(location).thenAcceptAsync(schem -> {
             if (callback != null) {
-                callback.accept(false);
+                callback.accept(schem != null);
             }
-            return;
-        }
-        Schem schem = new Schem(structureName, schemFile, location.getWorld());
-        schem.setPasteCallback(callback);
-        schem.paste(location);
+        }, mcRogueLike.getSchemLoader().getMainThreadExecutor());
     }
 
     /**
@@ -219,6 +285,7 @@ public abstract class AbstractRoom {
      */
     public void setSpawnPoints(List<SpawnPoint> spawnPoints) {
         this.spawnPoints = spawnPoints;
+        this.placementPlan = null;
     }
 
     /**
@@ -228,6 +295,7 @@ public abstract class AbstractRoom {
      */
     public void addSpawnPoint(AbstractSpawnpoint spawnpoint, String location) {
         spawnPoints.add(new SpawnPoint(spawnpoint, location));
+        placementPlan = null;
     }
 
     /**
@@ -236,6 +304,7 @@ public abstract class AbstractRoom {
      */
     public void removeSpawnPoint(AbstractSpawnpoint spawnpoint) {
         spawnPoints.removeIf(sp -> sp.getSpawnpoint().equals(spawnpoint));
+        placementPlan = null;
     }
 
     public SpawnPointManager getSpawnPointManager() {
@@ -1,10 +1,78 @@
 package io.github.cy3902.mcroguelike.abstracts;
 
+import io.github.cy3902.mcroguelike.MCRogueLike;
+import io.github.cy3902.mcroguelike.sql.DatabaseHealth;
+import io.github.cy3902.mcroguelike.sql.DatabaseUnavailableException;
+import io.github.cy3902.mcroguelike.sql.Migration;
+import io.github.cy3902.mcroguelike.sql.SchemaMigrator;
+
+import java.nio.ByteBuffer;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public abstract class AbstractSQL {
     protected Connection connection;
+    private int schemaVersion;
+
+    /**
+     * UUID 欄位的儲存方式
+     */
+    public enum UuidStorage {
+        STRING,     // 36 字元的文字
+        BINARY      // 16 位元組
+    }
+
+    private final UuidStorage uuidStorage;
+    private final DatabaseHealth health = new DatabaseHealth(this);
+
+    /**
+     * 建構子
+     * @param uuidStorage UUID 欄位的儲存方式
+     */
+    protected AbstractSQL(UuidStorage uuidStorage) {
+        this.uuidStorage = uuidStorage;
+    }
+
+    /**
+     * 寫入佇列，所有寫入依照送出的順序在單一執行緒執行
+     */
+    private ExecutorService writeExecutor;
+
+    /**
+     * 查詢執行緒池，SQLite 與寫入佇列共用同一個執行緒
+     */
+    private ExecutorService readExecutor;
+
+    /**
+     * 使用連線執行的操作
+     * @param <T> 回傳類型
+     */
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * 將查詢結果的一列轉換為物件，直接使用 ResultSet 的 getInt、getDouble 等方法讀取欄位
+     * @param <T> 物件類型
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
 
     /**
      * 建立與資料庫的連接。
@@ -14,12 +82,77 @@ public abstract class AbstractSQL {
 
     /**
      * 創建資料表，如果資料表不存在。
-     * 具體的表格創建邏輯由子類別實現。
+     * 依照版本順序執行子類別提供的結構遷移。
+     * @return 所有遷移都已套用時返回 true
+     */
+    public boolean createTableIfNotExists() {
+        List<Migration> migrations = getMigrations();
+        SchemaMigrator migrator = new SchemaMigrator(this);
+        schemaVersion = migrator.migrate(migrations);
+        migrator.convertUuidStorage(uuidStorage);
+        int latest = 0;
+        for (Migration migration : migrations) {
+            latest = Math.max(latest, migration.getVersion());
+        }
+        return schemaVersion >= latest;
+    }
+
+    /**
+     * 獲取此資料庫的結構遷移，版本號必須遞增且不可修改已發布的遷移
+     * @return 遷移列表
+     */
+    protected abstract List<Migration> getMigrations();
+
+    /**
+     * 獲取目前的結構版本
+     * @return 版本號
+     */
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * 產生隊伍資料表的定義，UUID 欄位依照儲存方式使用不同的型別，轉換儲存方式時重建資料表
+     * @param storage UUID 儲存方式
+     * @return 建立資料表與索引的 SQL 語句
+     */
+    public abstract List<String> getPartyTableDefinitions(UuidStorage storage);
+
+    public UuidStorage getUuidStorage() {
+        return uuidStorage;
+    }
+
+    /**
+     * 獲取連線健康檢查與斷路器
+     * @return 健康檢查
      */
-    public abstract void createTableIfNotExists();
+    public DatabaseHealth getHealth() {
+        return health;
+    }
 
     /**
-     * 執行查詢操作
+     * 記錄資料庫操作的錯誤，斷路器開啟時被拒絕的操作已由健康檢查記錄，不重複輸出
+     * @param message 訊息
+     * @param e 錯誤
+     */
+    protected void logError(String message, SQLException e) {
+        if (e instanceof DatabaseUnavailableException) {
+            return;
+        }
+        getLogger().log(Level.WARNING, message, e);
+    }
+
+    /**
+     * 獲取記錄資料庫訊息的 Logger，插件未載入時（例如效能測試）使用獨立的 Logger
+     * @return Logger
+     */
+    public Logger getLogger() {
+        MCRogueLike mcroguelike = MCRogueLike.getInstance();
+        return mcroguelike != null ? mcroguelike.getLogger() : Logger.getLogger("MCRogueLike");
+    }
+
+    /**
+     * 執行查詢操作，只返回第一列；需要型別或多列結果時使用 {@link #query} 與 {@link #queryFirst}
      * @param sql SQL查詢語句
      * @param params 查詢參數
      * @return 查詢結果，多列數據以逗號分隔
@@ -48,15 +181,420 @@ public abstract class AbstractSQL {
     public abstract void delete(String sql, String[] params);
 
     /**
-     * 檢查資料庫連接是否有效。
+     * 借用一個連線執行操作，連線池的連線在操作結束後歸還；
+     * 操作會被計時，斷路器開啟時直接拋出 {@link DatabaseUnavailableException}
+     * @param callback 使用連線的操作
+     * @param <T> 回傳類型
+     * @return 操作的結果
+     * @throws SQLException 資料庫錯誤
+     */
+    public final <T> T withConnection(ConnectionCallback<T> callback) throws SQLException {
+        return health.call(() -> doWithConnection(callback));
+    }
+
+    /**
+     * 借用連線執行操作的實作，子類別覆寫以使用連線池或加鎖
+     * @param callback 使用連線的操作
+     * @param <T> 回傳類型
+     * @return 操作的結果
+     * @throws SQLException 資料庫錯誤
+     */
+    protected <T> T doWithConnection(ConnectionCallback<T> callback) throws SQLException {
+        return callback.apply(connection);
+    }
+
+    /**
+     * 執行查詢並轉換所有結果列
+     * @param sql SQL查詢語句
+     * @param params 查詢參數
+     * @param mapper 結果列轉換器
+     * @param <T> 物件類型
+     * @return 所有結果，查詢失敗時為空列表
+     */
+    public <T> List<T> query(String sql, Object[] params, RowMapper<T> mapper) {
+        try {
+            return withReadConnection(conn -> {
+                List<T> results = new ArrayList<>();
+                PreparedStatement stmt = prepare(conn, sql);
+                try {
+                    bind(stmt, params);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            results.add(mapper.map(rs));
+                        }
+                    }
+                } finally {
+                    release(stmt);
+                }
+                return results;
+            });
+        } catch (SQLException e) {
+            logError("Database query failed: " + sql, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 執行查詢並轉換第一列結果
+     * @param sql SQL查詢語句
+     * @param params 查詢參數
+     * @param mapper 結果列轉換器
+     * @param <T> 物件類型
+     * @return 第一列的結果，沒有結果或查詢失敗時返回 null
+     */
+    public <T> T queryFirst(String sql, Object[] params, RowMapper<T> mapper) {
+        try {
+            return withReadConnection(conn -> {
+                PreparedStatement stmt = prepare(conn, sql);
+                try {
+                    bind(stmt, params);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() ? mapper.map(rs) : null;
+                    }
+                } finally {
+                    release(stmt);
+                }
+            });
+        } catch (SQLException e) {
+            logError("Database query failed: " + sql, e);
+            return null;
+        }
+    }
+
+    /**
+     * 在背景執行查詢並轉換所有結果列
+     * @param sql SQL查詢語句
+     * @param params 查詢參數
+     * @param mapper 結果列轉換器
+     * @param <T> 物件類型
+     * @return 所有結果
+     */
+    public <T> CompletableFuture<List<T>> queryAsync(String sql, Object[] params, RowMapper<T> mapper) {
+        return CompletableFuture.supplyAsync(() -> query(sql, params, mapper), readExecutor);
+    }
+
+    /**
+     * 在背景執行查詢並轉換第一列結果
+     * @param sql SQL查詢語句
+     * @param params 查詢參數
+     * @param mapper 結果列轉換器
+     * @param <T> 物件類型
+     * @return 第一列的結果，沒有結果時為 null
+     */
+    public <T> CompletableFuture<T> queryFirstAsync(String sql, Object[] params, RowMapper<T> mapper) {
+        return CompletableFuture.supplyAsync(() -> queryFirst(sql, params, mapper), readExecutor);
+    }
+
+    /**
+     * 在單一交易中執行操作，發生錯誤時回滾
+     * @param callback 使用連線的操作
+     * @param <T> 回傳類型
+     * @return 操作的結果
+     * @throws SQLException 資料庫錯誤
+     */
+    public <T> T inTransaction(ConnectionCallback<T> callback) throws SQLException {
+        return withConnection(conn -> {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                T result = callback.apply(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * 產生插入或更新的語句，主鍵衝突時更新其餘欄位
+     * @param table 資料表名稱
+     * @param columns 所有欄位，參數依照此順序綁定
+     * @param keyColumns 主鍵欄位
+     * @return SQL語句
+     */
+    public abstract String upsert(String table, String[] columns, String[] keyColumns);
+
+    /**
+     * 取得預備語句，子類別可以覆寫以重複使用已編譯的語句
+     * @param conn 資料庫連線
+     * @param sql SQL語句
+     * @return 預備語句
+     * @throws SQLException 資料庫錯誤
+     */
+    protected PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        return conn.prepareStatement(sql);
+    }
+
+    /**
+     * 使用完畢後歸還預備語句，預設直接關閉
+     * @param stmt 預備語句
+     * @throws SQLException 資料庫錯誤
+     */
+    protected void release(PreparedStatement stmt) throws SQLException {
+        stmt.close();
+    }
+
+    /**
+     * 產生指定數量的參數佔位符
+     * @param count 參數數量
+     * @return 以逗號分隔的問號
+     */
+    protected static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('?');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 依照參數的類型綁定到語句上，UUID 依照儲存方式綁定
+     * @param stmt 預備語句
+     * @param params 參數
+     * @throws SQLException 資料庫錯誤
+     */
+    protected void bind(PreparedStatement stmt, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] instanceof UUID) {
+                bindUuid(stmt, i + 1, (UUID) params[i]);
+            } else {
+                stmt.setObject(i + 1, params[i]);
+            }
+        }
+    }
+
+    /**
+     * 依照儲存方式綁定 UUID
+     * @param stmt 預備語句
+     * @param index 參數位置（從 1 開始）
+     * @param uuid UUID
+     * @throws SQLException 資料庫錯誤
+     */
+    public void bindUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+        if (uuidStorage == UuidStorage.BINARY) {
+            stmt.setBytes(index, toBytes(uuid));
+        } else {
+            stmt.setString(index, uuid.toString());
+        }
+    }
+
+    /**
+     * 依照儲存方式讀取 UUID 欄位
+     * @param rs 查詢結果
+     * @param column 欄位名稱
+     * @return UUID，欄位為 null 時返回 null
+     * @throws SQLException 資料庫錯誤
+     */
+    public UUID getUuid(ResultSet rs, String column) throws SQLException {
+        return readUuid(rs, column, uuidStorage);
+    }
+
+    /**
+     * 以指定的儲存方式讀取 UUID 欄位
+     * @param rs 查詢結果
+     * @param column 欄位名稱
+     * @param storage 儲存方式
+     * @return UUID，欄位為 null 時返回 null
+     * @throws SQLException 資料庫錯誤
+     */
+    public static UUID readUuid(ResultSet rs, String column, UuidStorage storage) throws SQLException {
+        if (storage == UuidStorage.BINARY) {
+            byte[] bytes = rs.getBytes(column);
+            return bytes == null ? null : fromBytes(bytes);
+        }
+        String value = rs.getString(column);
+        return value == null ? null : UUID.fromString(value);
+    }
+
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+
+    private static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * 執行有型別參數的寫入操作
+     * @param sql SQL語句
+     * @param params 參數，UUID 依照儲存方式綁定
+     * @return 影響的列數，失敗時為 -1
+     */
+    public int execute(String sql, Object[] params) {
+        try {
+            return withConnection(conn -> {
+                PreparedStatement stmt = prepare(conn, sql);
+                try {
+                    bind(stmt, params);
+                    return stmt.executeUpdate();
+                } finally {
+                    release(stmt);
+                }
+            });
+        } catch (SQLException e) {
+            logError("Database update failed: " + sql, e);
+            return -1;
+        }
+    }
+
+    /**
+     * 在寫入佇列執行有型別參數的寫入操作
+     * @param sql SQL語句
+     * @param params 參數，UUID 依照儲存方式綁定
+     * @return 影響的列數
+     */
+    public CompletableFuture<Integer> executeAsync(String sql, Object[] params) {
+        return CompletableFuture.supplyAsync(() -> execute(sql, params), writeExecutor);
+    }
+
+    /**
+     * 借用一個只用於查詢的連線執行操作，與 {@link #withConnection} 同樣經過斷路器
+     * @param callback 使用連線的操作
+     * @param <T> 回傳類型
+     * @return 操作的結果
+     * @throws SQLException 資料庫錯誤
+     */
+    public final <T> T withReadConnection(ConnectionCallback<T> callback) throws SQLException {
+        return health.call(() -> doWithReadConnection(callback));
+    }
+
+    /**
+     * 借用查詢連線的實作，預設與寫入使用相同的連線
+     * @param callback 使用連線的操作
+     * @param <T> 回傳類型
+     * @return 操作的結果
+     * @throws SQLException 資料庫錯誤
+     */
+    protected <T> T doWithReadConnection(ConnectionCallback<T> callback) throws SQLException {
+        return doWithConnection(callback);
+    }
+
+    /**
+     * 建立背景執行緒
+     * @param name 執行緒名稱前綴
+     * @param readThreads 查詢執行緒數量，0 表示查詢與寫入共用單一執行緒
+     */
+    protected void startExecutors(String name, int readThreads) {
+        shutdownExecutors();
+        writeExecutor = newExecutor(name + "-Write", 1);
+        readExecutor = readThreads > 0 ? newExecutor(name + "-Read", readThreads) : writeExecutor;
+    }
+
+    private static ExecutorService newExecutor(String name, int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * 等待佇列中的寫入完成後關閉背景執行緒
+     */
+    protected void shutdownExecutors() {
+        if (writeExecutor == null) {
+            return;
+        }
+        writeExecutor.shutdown();
+        readExecutor.shutdown();
+        try {
+            if (!writeExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                writeExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writeExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        readExecutor.shutdownNow();
+        writeExecutor = null;
+        readExecutor = null;
+    }
+
+    /**
+     * 在背景執行查詢
+     * @param sql SQL查詢語句
+     * @param params 查詢參數
+     * @return 查詢結果，多列數據以逗號分隔
+     */
+    public CompletableFuture<String> selectAsync(String sql, String[] params) {
+        return CompletableFuture.supplyAsync(() -> select(sql, params), readExecutor);
+    }
+
+    /**
+     * 在寫入佇列執行插入操作
+     * @param sql SQL插入語句
+     * @param params 插入參數
+     * @return 完成時的 Future
+     */
+    public CompletableFuture<Void> insertAsync(String sql, String[] params) {
+        return CompletableFuture.runAsync(() -> insert(sql, params), writeExecutor);
+    }
+
+    /**
+     * 在寫入佇列執行更新操作
+     * @param sql SQL更新語句
+     * @param params 更新參數
+     * @return 完成時的 Future
+     */
+    public CompletableFuture<Void> updateAsync(String sql, String[] params) {
+        return CompletableFuture.runAsync(() -> update(sql, params), writeExecutor);
+    }
+
+    /**
+     * 在寫入佇列執行刪除操作
+     * @param sql SQL刪除語句
+     * @param params 刪除參數
+     * @return 完成時的 Future
+     */
+    public CompletableFuture<Void> deleteAsync(String sql, String[] params) {
+        return CompletableFuture.runAsync(() -> delete(sql, params), writeExecutor);
+    }
+
+    /**
+     * 在寫入佇列執行多個相依的操作，例如先查詢再決定插入或更新，
+     * 與其他寫入保持送出的順序
+     * @param task 操作
+     * @return 完成時的 Future
+     */
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(task, writeExecutor);
+    }
+
+    /**
+     * 檢查資料庫連接是否有效，使用健康檢查設定的逾時。
      *
-     * @return 如果連接有效且未關閉，則返回 true，否則返回 false
+     * @return 如果連接有效，則返回 true，否則返回 false
      */
     public boolean isConnectionValid() {
+        return isConnectionValid(health.getValidationTimeoutSeconds());
+    }
+
+    /**
+     * 在逾時內向資料庫驗證連接是否仍然可用。
+     *
+     * @param timeoutSeconds 逾時（秒）
+     * @return 如果連接有效，則返回 true，否則返回 false
+     */
+    public boolean isConnectionValid(int timeoutSeconds) {
         try {
-            return connection != null && !connection.isClosed();
+            return connection != null && connection.isValid(timeoutSeconds);
         } catch (SQLException e) {
-            e.printStackTrace();
             return false;
         }
     }
@@ -70,6 +608,8 @@ public abstract class AbstractSQL {
      * 會嘗試關閉連接並處理可能的 SQL 異常。
      */
     public void close() {
+        health.stop();
+        shutdownExecutors();
         if (connection != null) {
             try {
                 connection.close();
@@ -37,6 +37,8 @@ public class Commands implements CommandExecutor, TabCompleter {
         commands.put("gui", new TestCommand());
         commands.put("save", new SchemCommand());
         commands.put("remove", new SchemRemoveCommand());
+        commands.put("schem", new SchemStatusCommand());
+        commands.put("db", new DatabaseStatusCommand());
         commands.put("room", new RoomCommand());
         commands.put("party", new PartyCommand());
 
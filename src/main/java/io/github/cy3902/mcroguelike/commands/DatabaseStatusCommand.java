@@ -0,0 +1,60 @@
+package io.github.cy3902.mcroguelike.commands;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractCommand;
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
+import io.github.cy3902.mcroguelike.sql.DatabaseHealth;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class DatabaseStatusCommand extends AbstractCommand {
+    public DatabaseStatusCommand() {
+        super("mcroguelike.db", "db", 2); // 命令格式: /mcrougelike db status
+    }
+
+    @Override
+    public void handle(CommandSender sender, String[] args) {
+        if (!args[1].equalsIgnoreCase("status")) {
+            sender.sendMessage(lang.getMessage("unknown_command"));
+            return;
+        }
+
+        AbstractSQL sql = mcRogueLike.getSql();
+        if (sql == null) {
+            sender.sendMessage(lang.getMessage("error"));
+            return;
+        }
+        DatabaseHealth health = sql.getHealth();
+
+        sender.sendMessage(lang.getMessage("db_status.header"));
+        sender.sendMessage(lang.getMessage("db_status.state")
+            .replace("%type%", sql.getClass().getSimpleName())
+            .replace("%state%", health.getState().name())
+            .replace("%version%", String.valueOf(sql.getSchemaVersion()))
+            .replace("%uuid%", sql.getUuidStorage().name()));
+        sender.sendMessage(lang.getMessage("db_status.operations")
+            .replace("%operations%", String.valueOf(health.getOperations()))
+            .replace("%errors%", String.valueOf(health.getErrors()))
+            .replace("%rejected%", String.valueOf(health.getRejected())));
+        sender.sendMessage(lang.getMessage("db_status.latency")
+            .replace("%avg%", String.valueOf(health.getAverageLatencyMicros()))
+            .replace("%max%", String.valueOf(health.getMaxLatencyMicros())));
+        sender.sendMessage(lang.getMessage("db_status.reconnects")
+            .replace("%reconnects%", String.valueOf(health.getReconnects()))
+            .replace("%failed%", String.valueOf(health.getFailedReconnects())));
+        if (health.getLastError() != null) {
+            sender.sendMessage(lang.getMessage("db_status.last_error")
+                .replace("%error%", health.getLastError()));
+        }
+    }
+
+    @Override
+    public List<String> complete(CommandSender sender, String[] args) {
+        if (args.length == 2) {
+            return Arrays.asList("status");
+        }
+        return null;
+    }
+}
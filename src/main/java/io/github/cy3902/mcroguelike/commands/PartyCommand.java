@@ -2,7 +2,6 @@ package io.github.cy3902.mcroguelike.commands;
 
 import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.abstracts.AbstractCommand;
-import io.github.cy3902.mcroguelike.abstracts.AbstractPath;
 import io.github.cy3902.mcroguelike.config.Lang;
 import io.github.cy3902.mcroguelike.manager.PartyPathManager;
 import io.github.cy3902.mcroguelike.party.Party;
@@ -195,10 +194,13 @@ public class PartyCommand extends AbstractCommand implements CommandExecutor {
         // 如果隊伍中沒有玩家，則刪除路徑
         if (party.getMembers().isEmpty()) {
             PartyPathManager partyPathManager = mcRogueLike.getPartyPathManagerRegister().get(party.getPartyID());
-            AbstractPath path = partyPathManager.getPath();
-            if (partyPathManager != null && path != null) {
-                partyPathManager.deletePath(path.getPathUUID().toString());
-                mcRogueLike.removePartyPathManagerRegister(party.getPartyID());
+            if (partyPathManager != null) {
+                partyPathManager.getPath().thenAccept(path -> {
+                    if (path != null) {
+                        partyPathManager.deletePath(path.getPathUUID().toString());
+                        mcRogueLike.removePartyPathManagerRegister(party.getPartyID());
+                    }
+                });
             }
         }
     }
@@ -11,10 +11,12 @@ import com.sk89q.worldedit.extent.clipboard.io.ClipboardWriter;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.block.BlockState;
 import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.abstracts.AbstractCommand;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -72,8 +74,13 @@ public class SchemCommand extends AbstractCommand {
                 BlockArrayClipboard clipboard = new BlockArrayClipboard(cuboidRegion);
                 
                 // 複製區域內容到剪貼簿
+                long blockCount = 0;
                 for (BlockVector3 pos : cuboidRegion) {
-                    clipboard.setBlock(pos, editSession.getBlock(pos));
+                    BlockState block = editSession.getBlock(pos);
+                    clipboard.setBlock(pos, block);
+                    if (!block.getBlockType().getMaterial().isAir()) {
+                        blockCount++;
+                    }
                 }
                 
                 // 保存到文件
@@ -81,34 +88,16 @@ public class SchemCommand extends AbstractCommand {
                     writer.write(clipboard);
                 }
 
-                // 紀錄中心點位置但Y軸是結構物的最低點至SQL
-                double minY = region.getMinimumPoint().getY();
-                BlockVector3 center = BlockVector3.at(
-                    (region.getMinimumPoint().getX() + region.getMaximumPoint().getX()) / 2,
-                    (region.getMinimumPoint().getY() + region.getMaximumPoint().getY()) / 2,
-                    (region.getMinimumPoint().getZ() + region.getMaximumPoint().getZ()) / 2
+                // 紀錄中心點位置但Y軸是結構物的最低點至結構資料索引
+                Vector center = new Vector(
+                    (min.getX() + max.getX()) / 2,
+                    min.getY(),
+                    (min.getZ() + max.getZ()) / 2
                 );
-                double centerX = center.getX();
-                double centerY =  minY;
-                double centerZ = center.getZ();
-                
+                mcRogueLike.getSchemIndex().update(schemName, center, clipboard.getDimensions(), blockCount);
 
-                String existingRecord = mcRogueLike.getSql().select(
-                    "SELECT name FROM `schem` WHERE name = ?",
-                    new String[]{schemName}
-                );
-                
-                if (existingRecord != null) {
-                    mcRogueLike.getSql().update(
-                        "UPDATE `mcroguelike_schem` SET `center_x` = ?, `center_y` = ?, `center_z` = ? WHERE `name` = ?",
-                        new String[]{String.valueOf(centerX), String.valueOf(centerY), String.valueOf(centerZ), schemName}
-                    );
-                } else {
-                    mcRogueLike.getSql().insert(
-                        "INSERT INTO `mcroguelike_schem` (`name`, `center_x`, `center_y`, `center_z`) VALUES (?, ?, ?, ?)",
-                        new String[]{schemName, String.valueOf(centerX), String.valueOf(centerY), String.valueOf(centerZ)}
-                    );
-                }
+                // 結構已更新，移除舊的快取
+                mcRogueLike.getSchemCache().invalidate(schemName);
 
                 player.sendMessage(lang.getMessage("schem_saved").replace("%filename%", schemName));
             }
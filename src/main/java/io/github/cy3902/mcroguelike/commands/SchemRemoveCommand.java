@@ -35,7 +35,8 @@ public class SchemRemoveCommand extends AbstractCommand {
             }
         }
 
-        mcRogueLike.getSql().delete("DELETE FROM mcroguelike_schem WHERE name = ?", new String[] { schemName });
+        mcRogueLike.getSchemIndex().remove(schemName);
+        mcRogueLike.getSchemCache().invalidate(schemName);
 
         player.sendMessage(lang.getMessage("schem_removed").replace("%filename%", schemName));
     }
@@ -0,0 +1,92 @@
+package io.github.cy3902.mcroguelike.commands;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractCommand;
+import io.github.cy3902.mcroguelike.manager.room.RoomInstance;
+import io.github.cy3902.mcroguelike.manager.room.RoomInstancePool;
+import io.github.cy3902.mcroguelike.schem.PasteScheduler;
+import io.github.cy3902.mcroguelike.schem.SchemCache;
+import io.github.cy3902.mcroguelike.schem.SchemLoader;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class SchemStatusCommand extends AbstractCommand {
+    public SchemStatusCommand() {
+        super("mcroguelike.schem", "schem", 2); // 命令格式: /mcrougelike schem status
+    }
+
+    @Override
+    public void handle(CommandSender sender, String[] args) {
+        if (!args[1].equalsIgnoreCase("status")) {
+            sender.sendMessage(lang.getMessage("unknown_command"));
+            return;
+        }
+
+        SchemCache cache = mcRogueLike.getSchemCache();
+        SchemLoader loader = mcRogueLike.getSchemLoader();
+
+        sender.sendMessage(lang.getMessage("schem_status.header"));
+        sender.sendMessage(lang.getMessage("schem_status.cache")
+            .replace("%size%", String.valueOf(cache.getSize()))
+            .replace("%used%", String.valueOf(cache.getUsedMemory() / (1024 * 1024)))
+            .replace("%max%", String.valueOf(cache.getMaxMemory() / (1024 * 1024)))
+            .replace("%hits%", String.valueOf(cache.getHits()))
+            .replace("%misses%", String.valueOf(cache.getMisses()))
+            .replace("%evictions%", String.valueOf(cache.getEvictions())));
+
+        long duration = loader.getWarmUpDuration();
+        sender.sendMessage(lang.getMessage("schem_status.preload")
+            .replace("%done%", String.valueOf(loader.getWarmUpCompleted()))
+            .replace("%total%", String.valueOf(loader.getWarmUpTotal()))
+            .replace("%time%", duration < 0 ? "-" : String.valueOf(duration)));
+
+        for (Map.Entry<String, SchemLoader.State> entry : loader.getStates().entrySet()) {
+            sender.sendMessage(lang.getMessage("schem_status.entry")
+                .replace("%name%", entry.getKey())
+                .replace("%state%", entry.getValue().name())
+                .replace("%time%", String.valueOf(loader.getLoadTime(entry.getKey()))));
+        }
+
+        PasteScheduler scheduler = mcRogueLike.getPasteScheduler();
+        sender.sendMessage(lang.getMessage("schem_status.paste")
+            .replace("%running%", String.valueOf(scheduler.getRunning()))
+            .replace("%queued%", String.valueOf(scheduler.getQueueDepth()))
+            .replace("%limit%", String.valueOf(scheduler.getMaxConcurrentPerWorld()))
+            .replace("%completed%", String.valueOf(scheduler.getCompleted()))
+            .replace("%failed%", String.valueOf(scheduler.getFailed())));
+        sender.sendMessage(lang.getMessage("schem_status.paste_latency")
+            .replace("%last%", String.valueOf(scheduler.getLastLatencyMillis()))
+            .replace("%avg%", String.valueOf(scheduler.getAverageLatencyMillis()))
+            .replace("%max%", String.valueOf(scheduler.getMaxLatencyMillis()))
+            .replace("%wait%", String.valueOf(scheduler.getAverageWaitMillis())));
+        for (Map.Entry<String, Integer> entry : scheduler.getQueueDepths().entrySet()) {
+            sender.sendMessage(lang.getMessage("schem_status.paste_queue")
+                .replace("%world%", entry.getKey())
+                .replace("%queued%", String.valueOf(entry.getValue())));
+        }
+
+        RoomInstancePool pool = mcRogueLike.getRoomInstancePool();
+        for (Map.Entry<String, RoomInstancePool.Setting> entry : pool.getSettings().entrySet()) {
+            Map<RoomInstance.State, Integer> counts = pool.getStateCounts(entry.getKey());
+            sender.sendMessage(lang.getMessage("schem_status.pool")
+                .replace("%room%", entry.getKey())
+                .replace("%idle%", String.valueOf(counts.get(RoomInstance.State.IDLE)))
+                .replace("%in_use%", String.valueOf(counts.get(RoomInstance.State.IN_USE)))
+                .replace("%preparing%", String.valueOf(counts.get(RoomInstance.State.PASTING) + counts.get(RoomInstance.State.RESETTING)))
+                .replace("%target%", String.valueOf(pool.getTargetSize(entry.getKey())))
+                .replace("%min%", String.valueOf(entry.getValue().getMin()))
+                .replace("%max%", String.valueOf(entry.getValue().getMax())));
+        }
+    }
+
+    @Override
+    public List<String> complete(CommandSender sender, String[] args) {
+        if (args.length == 2) {
+            return Arrays.asList("status");
+        }
+        return null;
+    }
+}
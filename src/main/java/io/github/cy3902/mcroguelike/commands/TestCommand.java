@@ -1,7 +1,6 @@
 package io.github.cy3902.mcroguelike.commands;
 
 import io.github.cy3902.mcroguelike.abstracts.AbstractCommand;
-import io.github.cy3902.mcroguelike.abstracts.AbstractPath;
 import io.github.cy3902.mcroguelike.gui.PathGUI;
 import io.github.cy3902.mcroguelike.manager.PartyPathManager;
 import io.github.cy3902.mcroguelike.party.Party;
@@ -10,6 +9,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class TestCommand extends AbstractCommand {
     /**
@@ -41,22 +41,21 @@ public class TestCommand extends AbstractCommand {
         }
 
         // 獲取PartyPathManager
-        PartyPathManager partyPathManager = mcRogueLike.getPartyPathManagerRegister().get(party.getPartyID());
-        if (partyPathManager == null) {
-            partyPathManager = new PartyPathManager(party);
-            mcRogueLike.addPartyPathManagerRegister(party.getPartyID(), partyPathManager);
-        }
-
-        // 獲取路徑
-        AbstractPath path = partyPathManager.getPath();
-        if (path == null) {
-            path = mcRogueLike.getPathFile().getPath(args[1]); 
-            partyPathManager.setPath(path);
-        }
+        PartyPathManager partyPathManager = mcRogueLike.getPartyPathManagerRegister()
+            .computeIfAbsent(party.getPartyID(), id -> new PartyPathManager(party));
 
-        // 開啟GUI
-        PathGUI gui = new PathGUI(path);
-        gui.openGUI(player);
+        // 獲取路徑，沒有路徑時設置指令指定的路徑
+        partyPathManager.getPath().thenCompose(path -> path != null
+            ? CompletableFuture.completedFuture(path)
+            : partyPathManager.setPath(mcRogueLike.getPathFile().getPath(args[1]))
+        ).thenAccept(path -> {
+            if (!player.isOnline()) {
+                return;
+            }
+            // 開啟GUI
+            PathGUI gui = new PathGUI(path);
+            gui.openGUI(player);
+        });
     }
 
     /**
@@ -1,21 +1,57 @@
 package io.github.cy3902.mcroguelike.config;
 
 import io.github.cy3902.mcroguelike.MCRogueLike;
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
 import io.github.cy3902.mcroguelike.abstracts.FileProvider;
+import io.github.cy3902.mcroguelike.manager.room.RoomInstancePool;
+import io.github.cy3902.mcroguelike.sql.MemorySQL;
 import io.github.cy3902.mcroguelike.sql.MySQL;
 import io.github.cy3902.mcroguelike.sql.SQLite;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
 /**
  * 用於讀取和處理配置文件的類別。
  */
 public class ConfigFile extends FileProvider<YamlConfiguration> {
 
     private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private int writeBehindInterval;
+    private int partyCacheMaxOffline;
+    private long schemCacheMaxMemory;
+    private int schemLoaderThreads;
+    private int pasteThreads;
+    private int pasteMaxConcurrentPerWorld;
+    private int chunkPreloadPerTick;
+    private Map<String, RoomInstancePool.Setting> roomPoolSettings;
+    private int roomPoolDemandWindow;
+    private int roomPoolMaintenanceInterval;
+    private double roomResetFullRatio;
+    private int roomResetBatchSize;
+    private PathStorage pathStorage;
+    private PathFileFormat pathFileFormat;
 
     public enum DatabaseType {
-        sqlite, mysql
+        sqlite, mysql, memory
+    }
+
+    /**
+     * 玩家路徑的保存方式，seed 只保存種子與進度，full 保存完整的節點
+     */
+    public enum PathStorage {
+        seed, full
+    }
+
+    /**
+     * 玩家路徑的檔案格式，binary 為精簡的二進位格式，json 方便閱讀與匯出
+     */
+    public enum PathFileFormat {
+        binary, json
     }
 
     /**
@@ -70,11 +106,24 @@ public class ConfigFile extends FileProvider<YamlConfiguration> {
             databaseType = DatabaseType.sqlite;
         }
 
+        // 關閉重新載入前的數據庫連接，等待尚未完成的寫入
+        if (mcroguelike.getSql() != null) {
+            mcroguelike.getSql().close();
+        }
+
+        // UUID 欄位的儲存方式，與資料庫記錄的不同時會自動轉換
+        AbstractSQL.UuidStorage uuidStorage;
+        try {
+            uuidStorage = AbstractSQL.UuidStorage.valueOf(yml.getString("database.uuid_storage", "string").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            uuidStorage = AbstractSQL.UuidStorage.STRING;
+        }
+
         // 根據數據庫類型設置對應的數據庫連接
         if (databaseType == DatabaseType.sqlite) {
             // 讀取 SQLite 配置參數
             String DATABASE_URL = yml.getString("file_path", "plugins/MCRogueLike/SQL/mcrougelike.db");
-            mcroguelike.setSql(new SQLite(DATABASE_URL));
+            mcroguelike.setSql(new SQLite(DATABASE_URL, uuidStorage));
         } else if (databaseType == DatabaseType.mysql) {
             // 讀取 MySQL 配置參數
             String host = yml.getString("database.mysql.host", "");
@@ -82,10 +131,180 @@ public class ConfigFile extends FileProvider<YamlConfiguration> {
             int port = yml.getInt("database.mysql.port", 0);
             String username = yml.getString("database.mysql.username", "");
             String password = yml.getString("database.mysql.password", "");
+            int poolSize = yml.getInt("database.mysql.pool_size", 10);
 
-            
             // 創建 MySQL 實例並設置
-            mcroguelike.setSql(new MySQL(host, port, dbName, username, password));
+            mcroguelike.setSql(new MySQL(host, port, dbName, username, password, poolSize, uuidStorage));
+        } else if (databaseType == DatabaseType.memory) {
+            // 記憶體資料庫，資料不會保存
+            mcroguelike.info("Using in-memory database, data will be lost when the server stops", Level.WARNING);
+            mcroguelike.setSql(new MemorySQL(uuidStorage));
+        }
+
+        // 啟動連線健康檢查，連線中斷時自動重新連線
+        if (mcroguelike.getSql() != null) {
+            mcroguelike.getSql().getHealth().start(
+                yml.getInt("database.health.check_interval_seconds", 30),
+                yml.getInt("database.health.validation_timeout_seconds", 5),
+                yml.getInt("database.health.failure_threshold", 3),
+                yml.getInt("database.health.max_backoff_seconds", 60)
+            );
+        }
+
+        // 讀取延遲寫入設定
+        writeBehindInterval = yml.getInt("database.write_behind.flush_interval_ticks", 20);
+        partyCacheMaxOffline = yml.getInt("database.party_cache.max_offline_parties", 5000);
+
+        // 讀取結構快取設定
+        schemCacheMaxMemory = yml.getLong("schematic.cache.max_memory_mb", 256) * 1024L * 1024L;
+        schemLoaderThreads = yml.getInt("schematic.preload.threads", 2);
+        pasteThreads = yml.getInt("schematic.paste.threads", 2);
+        pasteMaxConcurrentPerWorld = yml.getInt("schematic.paste.max_concurrent_per_world", 1);
+        chunkPreloadPerTick = yml.getInt("schematic.chunk_preload.chunks_per_tick", 4);
+
+        // 讀取路徑保存方式
+        try {
+            pathStorage = PathStorage.valueOf(yml.getString("path.storage", "seed"));
+        } catch (IllegalArgumentException e) {
+            pathStorage = PathStorage.seed;
+        }
+        try {
+            pathFileFormat = PathFileFormat.valueOf(yml.getString("path.file_format", "binary"));
+        } catch (IllegalArgumentException e) {
+            pathFileFormat = PathFileFormat.binary;
         }
+
+        // 讀取房間實例池設定
+        roomPoolSettings = new HashMap<>();
+        roomPoolDemandWindow = yml.getInt("room_pool.demand_window_seconds", 600);
+        roomPoolMaintenanceInterval = yml.getInt("room_pool.maintenance_interval_seconds", 10);
+        roomResetFullRatio = yml.getDouble("room_pool.reset.full_reset_ratio", 0.25);
+        roomResetBatchSize = yml.getInt("room_pool.reset.batch_size", 4096);
+        ConfigurationSection rooms = yml.getConfigurationSection("room_pool.rooms");
+        if (rooms != null) {
+            for (String roomId : rooms.getKeys(false)) {
+                ConfigurationSection room = rooms.getConfigurationSection(roomId);
+                if (room == null) {
+                    continue;
+                }
+                roomPoolSettings.put(roomId, new RoomInstancePool.Setting(
+                    room.getString("map", "world"),
+                    room.getInt("min", 1),
+                    room.getInt("max", 3)
+                ));
+            }
+        }
+    }
+
+    /**
+     * 獲取隊伍成員延遲寫入的間隔
+     * @return 間隔（tick）
+     */
+    public int getWriteBehindInterval() {
+        return writeBehindInterval;
+    }
+
+    /**
+     * 獲取記憶體中保留的離線隊伍上限
+     * @return 隊伍數量
+     */
+    public int getPartyCacheMaxOffline() {
+        return partyCacheMaxOffline;
+    }
+
+    /**
+     * 獲取結構快取的記憶體預算
+     * @return 記憶體預算（位元組）
+     */
+    public long getSchemCacheMaxMemory() {
+        return schemCacheMaxMemory;
+    }
+
+    /**
+     * 獲取結構預載的工作執行緒數量
+     * @return 執行緒數量
+     */
+    public int getSchemLoaderThreads() {
+        return schemLoaderThreads;
+    }
+
+    /**
+     * 獲取結構貼上的執行緒數量
+     * @return 執行緒數量
+     */
+    public int getPasteThreads() {
+        return pasteThreads;
+    }
+
+    /**
+     * 獲取每個世界同時貼上結構的上限
+     * @return 同時貼上數量
+     */
+    public int getPasteMaxConcurrentPerWorld() {
+        return pasteMaxConcurrentPerWorld;
+    }
+
+    /**
+     * 獲取伺服器不支援非同步區塊載入時，每刻同步載入的區塊數量
+     * @return 區塊數量
+     */
+    public int getChunkPreloadPerTick() {
+        return chunkPreloadPerTick;
+    }
+
+    /**
+     * 獲取房間實例池設定
+     * @return 房間ID與設定
+     */
+    public Map<String, RoomInstancePool.Setting> getRoomPoolSettings() {
+        return roomPoolSettings;
+    }
+
+    /**
+     * 獲取計算房間需求的時間範圍
+     * @return 秒數
+     */
+    public int getRoomPoolDemandWindow() {
+        return roomPoolDemandWindow;
+    }
+
+    /**
+     * 獲取房間實例池的維護間隔
+     * @return 秒數
+     */
+    public int getRoomPoolMaintenanceInterval() {
+        return roomPoolMaintenanceInterval;
+    }
+
+    /**
+     * 獲取改為整個重新貼上的變更比例
+     * @return 變更方塊數佔結構體積的比例
+     */
+    public double getRoomResetFullRatio() {
+        return roomResetFullRatio;
+    }
+
+    /**
+     * 獲取還原房間時每批的方塊數量
+     * @return 方塊數量
+     */
+    public int getRoomResetBatchSize() {
+        return roomResetBatchSize;
+    }
+
+    /**
+     * 獲取玩家路徑的保存方式
+     * @return 保存方式
+     */
+    public PathStorage getPathStorage() {
+        return pathStorage;
+    }
+
+    /**
+     * 獲取玩家路徑的檔案格式
+     * @return 檔案格式
+     */
+    public PathFileFormat getPathFileFormat() {
+        return pathFileFormat;
     }
 }
@@ -132,6 +132,20 @@ public class Lang extends FileProvider<Map<String, String>> {
         messages.put("schem_save_failed", color(yml.getString("schem_save_failed", "&c儲存結構失敗")));
         messages.put("schem_removed", color(yml.getString("schem_removed", "&a結構已刪除: %filename%")));
         messages.put("schem_remove_failed", color(yml.getString("schem_remove_failed", "&c刪除結構失敗")));
+        messages.put("schem_status.header", color(yml.getString("schem_status.header", "&f------ &b&l結構狀態 &f------")));
+        messages.put("schem_status.cache", color(yml.getString("schem_status.cache", "&a快取: &f%size% 個結構, %used%/%max% MB &7(命中 %hits%, 未命中 %misses%, 淘汰 %evictions%)")));
+        messages.put("schem_status.preload", color(yml.getString("schem_status.preload", "&a預載: &f%done%/%total% &7(耗時 %time% ms)")));
+        messages.put("schem_status.entry", color(yml.getString("schem_status.entry", "&8 - &f%name% &7%state% (%time% ms)")));
+        messages.put("schem_status.paste", color(yml.getString("schem_status.paste", "&a貼上: &f執行中 %running%, 排隊 %queued% &7(每個世界上限 %limit%, 完成 %completed%, 失敗 %failed%)")));
+        messages.put("schem_status.paste_latency", color(yml.getString("schem_status.paste_latency", "&a貼上延遲: &f最近 %last% ms, 平均 %avg% ms, 最高 %max% ms &7(平均等待 %wait% ms)")));
+        messages.put("schem_status.paste_queue", color(yml.getString("schem_status.paste_queue", "&8 - &f%world% &7排隊 %queued%")));
+        messages.put("schem_status.pool", color(yml.getString("schem_status.pool", "&a實例池 %room%: &f閒置 %idle%, 使用中 %in_use%, 準備中 %preparing% &7(目標 %target%, 範圍 %min%-%max%)")));
+        messages.put("db_status.header", color(yml.getString("db_status.header", "&f------ &b&l資料庫狀態 &f------")));
+        messages.put("db_status.state", color(yml.getString("db_status.state", "&a資料庫: &f%type% &7(斷路器 %state%, 結構版本 %version%, UUID %uuid%)")));
+        messages.put("db_status.operations", color(yml.getString("db_status.operations", "&a操作: &f%operations% &7(錯誤 %errors%, 拒絕 %rejected%)")));
+        messages.put("db_status.latency", color(yml.getString("db_status.latency", "&a延遲: &f平均 %avg% µs, 最高 %max% µs")));
+        messages.put("db_status.reconnects", color(yml.getString("db_status.reconnects", "&a重新連線: &f%reconnects% &7(失敗 %failed%)")));
+        messages.put("db_status.last_error", color(yml.getString("db_status.last_error", "&a最近錯誤: &c%error%")));
         
         // 房間GUI相關文字
         messages.put("room.gui.title", color(yml.getString("room.gui.title", "&b&lMCRogueLike &f房間管理系統")));
@@ -219,6 +233,7 @@ public class Lang extends FileProvider<Map<String, String>> {
         messages.put("path.gui.invalid_map", color(yml.getString("path.gui.invalid_map", "&c無效的地圖")));
         messages.put("path.gui.invalid_room", color(yml.getString("path.gui.invalid_room", "&c無效的房間")));
         messages.put("path.gui.invalid_map_location", color(yml.getString("path.gui.invalid_map_location", "&c無效的地圖位置")));
+        messages.put("path.gui.arena_full", color(yml.getString("path.gui.arena_full", "&c目前沒有空閒的競技場，請稍後再試")));
         messages.put("path.gui.room_generated", color(yml.getString("path.gui.room_generated", "&a已生成房間 %room%")));
         messages.put("path.gui.invalid_map_room", color(yml.getString("path.gui.invalid_map_room", "&c無效的地圖或房間")));
         messages.put("path.gui.map_not_found", color(yml.getString("path.gui.map_not_found", "&c找不到地圖")));
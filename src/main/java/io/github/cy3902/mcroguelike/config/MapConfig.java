@@ -15,6 +15,8 @@ public class MapConfig {
     private boolean pvp;
     private String weather;
     private boolean allowExplosions;
+    private int arenaSlotsX;
+    private int arenaSlotsZ;
 
     /**
      * 默認構造函數
@@ -30,6 +32,8 @@ public class MapConfig {
         this.pvp = false;
         this.weather = "clear";
         this.allowExplosions = false;
+        this.arenaSlotsX = 8;
+        this.arenaSlotsZ = 8;
     }
 
     /**
@@ -49,6 +53,8 @@ public class MapConfig {
         this.pvp = pvp;
         this.weather = weather;
         this.allowExplosions = allowExplosions;
+        this.arenaSlotsX = 8;
+        this.arenaSlotsZ = 8;
     }
 
     // Getters and Setters
@@ -131,4 +137,20 @@ public class MapConfig {
     public void setAllowExplosions(boolean allowExplosions) {
         this.allowExplosions = allowExplosions;
     }
+
+    public int getArenaSlotsX() {
+        return arenaSlotsX;
+    }
+
+    public void setArenaSlotsX(int arenaSlotsX) {
+        this.arenaSlotsX = arenaSlotsX;
+    }
+
+    public int getArenaSlotsZ() {
+        return arenaSlotsZ;
+    }
+
+    public void setArenaSlotsZ(int arenaSlotsZ) {
+        this.arenaSlotsZ = arenaSlotsZ;
+    }
 } 
\ No newline at end of file
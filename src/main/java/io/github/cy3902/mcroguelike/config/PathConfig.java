@@ -1,7 +1,9 @@
 package io.github.cy3902.mcroguelike.config;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 路徑配置類
@@ -21,6 +23,7 @@ public class PathConfig {
     private double specialNodeProbability;
     private List<String> roomNames;
     private List<String> bossRoomNames;
+    private Map<String, Double> roomWeights;
     private String mapName;
 
     /**
@@ -40,6 +43,7 @@ public class PathConfig {
         this.specialNodeProbability = 0.2;
         this.roomNames = new ArrayList<>();
         this.bossRoomNames = new ArrayList<>();
+        this.roomWeights = new LinkedHashMap<>();
         this.mapName = "";
     }
 
@@ -79,6 +83,7 @@ public class PathConfig {
         this.specialNodeProbability = specialNodeProbability;
         this.roomNames = new ArrayList<>(roomNames);
         this.bossRoomNames = new ArrayList<>(bossRoomNames);
+        this.roomWeights = new LinkedHashMap<>();
         this.mapName = mapName;
     }
 
@@ -258,6 +263,22 @@ public class PathConfig {
         this.bossRoomNames = bossRoomNames;
     }
 
+    /**
+     * 獲取房間權重，未設定的房間權重為 1
+     * @return 房間ID與權重
+     */
+    public Map<String, Double> getRoomWeights() {
+        return roomWeights;
+    }
+
+    /**
+     * 設置房間權重
+     * @param roomWeights 房間ID與權重
+     */
+    public void setRoomWeights(Map<String, Double> roomWeights) {
+        this.roomWeights = roomWeights;
+    }
+
     /**
      * 獲取地圖名稱
      * @return 地圖名稱
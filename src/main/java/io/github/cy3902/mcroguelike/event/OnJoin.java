@@ -8,7 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 
 import io.github.cy3902.mcroguelike.MCRogueLike;
-import io.github.cy3902.mcroguelike.party.Party;
+import io.github.cy3902.mcroguelike.party.PartyRepository;
 
 public class OnJoin implements Listener {
     @EventHandler
@@ -16,21 +16,20 @@ public class OnJoin implements Listener {
         reloadParty(event.getPlayer());
     }
 
+    /**
+     * 從隊伍索引取得玩家所屬的隊伍並註冊，索引中沒有資料時才在背景以一個查詢讀取整個隊伍
+     * @param player 玩家
+     */
     public static void reloadParty(Player player) {
         MCRogueLike mcRogueLike = MCRogueLike.getInstance();
-        String existingRecord = mcRogueLike.getSql().select(
-                    "SELECT party_uuid FROM `mcroguelike_party_member` WHERE member_uuid = ?",
-                    new String[]{player.getUniqueId().toString()}
-                );
-        if (existingRecord != null) {
-            String partyID = existingRecord.split(",")[0];
-            Party party = mcRogueLike.getPartyRegister().get(UUID.fromString(partyID));
-            if (party != null) {
-                mcRogueLike.addPlayerPartyRegister(player.getUniqueId(), party);
-            }else{
-                Party newParty = new Party(player, UUID.fromString(partyID));
-                mcRogueLike.addPartyRegister(newParty.getPartyID(), newParty);
+        UUID playerID = player.getUniqueId();
+        PartyRepository repository = mcRogueLike.getPartyRepository();
+        repository.loadOnline(playerID).thenAccept(record -> {
+            if (record == null || !player.isOnline()) {
+                return;
             }
-        }
+            // 以完整的成員與隊長還原隊伍，已註冊時只註冊玩家
+            repository.register(record);
+        });
     }
 }
@@ -24,6 +24,7 @@ public class OnQuit implements Listener {
 
     public static Party onQuitParty(Player player) {
         MCRogueLike mcRogueLike = MCRogueLike.getInstance();
+        mcRogueLike.getPartyRepository().markOffline(player.getUniqueId());
         Party party = mcRogueLike.getPlayerPartyRegister().get(player.getUniqueId());
         if (party != null) {
             mcRogueLike.removePlayerPartyRegister(player.getUniqueId());
@@ -0,0 +1,149 @@
+package io.github.cy3902.mcroguelike.event;
+
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
+import org.bukkit.event.block.BlockMultiPlaceEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
+import io.github.cy3902.mcroguelike.map.ArenaSlot;
+import io.github.cy3902.mcroguelike.map.RoomBlockTracker;
+
+/**
+ * 記錄房間進行期間結構範圍內的方塊變更，房間結束時只還原這些位置
+ */
+public class OnRoomBlockChange implements Listener {
+    private final MCRogueLike mcRogueLike = MCRogueLike.getInstance();
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBreak(BlockBreakEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlace(BlockPlaceEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMultiPlace(BlockMultiPlaceEvent event) {
+        for (BlockState state : event.getReplacedBlockStates()) {
+            mark(state.getBlock());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            mark(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        mark(event.getBlock());
+        for (Block block : event.blockList()) {
+            mark(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBurn(BlockBurnEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onIgnite(BlockIgniteEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onFade(BlockFadeEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onForm(BlockFormEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onFlow(BlockFromToEvent event) {
+        mark(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLeavesDecay(LeavesDecayEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        for (Block block : event.getBlocks()) {
+            mark(block);
+            mark(block.getRelative(event.getDirection()));
+        }
+        mark(event.getBlock().getRelative(event.getDirection()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        for (Block block : event.getBlocks()) {
+            mark(block);
+            mark(block.getRelative(event.getDirection()));
+        }
+        mark(event.getBlock().getRelative(event.getDirection()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFill(PlayerBucketFillEvent event) {
+        mark(event.getBlock());
+    }
+
+    /**
+     * 找出方塊所在的格位並記錄變更
+     * @param block 方塊
+     */
+    private void mark(Block block) {
+        AbstractMap map = mcRogueLike.getMapFile().getMap(block.getWorld().getName());
+        if (map == null) {
+            return;
+        }
+        ArenaSlot slot = map.getArenaSlotAllocator().getSlotAt(block.getX(), block.getZ());
+        if (slot == null) {
+            return;
+        }
+        RoomBlockTracker tracker = slot.getBlockTracker();
+        if (tracker != null) {
+            tracker.mark(block.getX(), block.getY(), block.getZ());
+        }
+    }
+}
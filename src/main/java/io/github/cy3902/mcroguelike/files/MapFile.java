@@ -4,6 +4,7 @@ import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.abstracts.FileProvider;
 import io.github.cy3902.mcroguelike.abstracts.FileProviderList;
 import io.github.cy3902.mcroguelike.config.MapConfig;
+import io.github.cy3902.mcroguelike.map.ArenaSlotAllocator;
 import io.github.cy3902.mcroguelike.map.Map;
 import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
 
@@ -59,6 +60,8 @@ public class MapFile extends FileProviderList<FileProvider<MapConfig>> {
                         config.setPvp(yml.getBoolean("pvp", false));
                         config.setWeather(yml.getString("weather", "clear"));
                         config.setAllowExplosions(yml.getBoolean("allow_explosions", false));
+                        config.setArenaSlotsX(yml.getInt("arena.slots_x", 8));
+                        config.setArenaSlotsZ(yml.getInt("arena.slots_z", 8));
                         return config;
                     }
 
@@ -74,6 +77,8 @@ public class MapFile extends FileProviderList<FileProvider<MapConfig>> {
                         yml.set("pvp", config.isPvp());
                         yml.set("weather", config.getWeather());
                         yml.set("allow_explosions", config.isAllowExplosions());
+                        yml.set("arena.slots_x", config.getArenaSlotsX());
+                        yml.set("arena.slots_z", config.getArenaSlotsZ());
                         try {
                             yml.save(file);
                         } catch (Exception e) {
@@ -138,7 +143,9 @@ public class MapFile extends FileProviderList<FileProvider<MapConfig>> {
             config.isDoMobSpawning(),
             config.isPvp(),
             config.getWeather(),
-            config.isAllowExplosions()
+            config.isAllowExplosions(),
+            config.getArenaSlotsX(),
+            config.getArenaSlotsZ()
         );
     }
 
@@ -158,10 +165,45 @@ public class MapFile extends FileProviderList<FileProvider<MapConfig>> {
         
         // 更新地圖物件
         AbstractMap map = convertToMap(mapId, config);
+        AbstractMap previous = maps.get(mapId);
+        if (previous != null) {
+            adoptArenaSlots(map, previous);
+        }
         maps.put(mapId, map);
         
     }
 
+    /**
+     * 重新載入後沿用舊地圖的格位分配器，進行中的房間與實例池的格位仍保持租用
+     * @param previous 重新載入前的地圖文件
+     */
+    public void adoptArenaSlots(MapFile previous) {
+        for (java.util.Map.Entry<String, AbstractMap> entry : maps.entrySet()) {
+            AbstractMap old = previous.getMap(entry.getKey());
+            if (old != null) {
+                adoptArenaSlots(entry.getValue(), old);
+            }
+        }
+    }
+
+    /**
+     * 網格相同或舊網格仍有使用中的格位時沿用舊的分配器
+     * @param map 新的地圖
+     * @param previous 舊的地圖
+     */
+    private void adoptArenaSlots(AbstractMap map, AbstractMap previous) {
+        ArenaSlotAllocator allocator = previous.getArenaSlotAllocator();
+        boolean sameLayout = allocator.hasSameLayout(map.getArenaSlotAllocator());
+        if (!sameLayout && allocator.getLeasedCount() == 0) {
+            return;
+        }
+        if (!sameLayout) {
+            mcroguelike.getLogger().log(Level.WARNING, "Map " + map.getName()
+                + " still has rooms in its old arena layout, the new layout applies on the next reload after they end");
+        }
+        map.setArenaSlotAllocator(allocator);
+    }
+
     /**
      * 獲取指定ID的地圖配置
      * @param mapId 地圖ID
@@ -7,8 +7,11 @@ import io.github.cy3902.mcroguelike.config.PathConfig;
 import io.github.cy3902.mcroguelike.path.Path;
 import io.github.cy3902.mcroguelike.abstracts.AbstractPath;
 import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
+import org.bukkit.configuration.ConfigurationSection;
+
 import java.io.File;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.logging.Level;
 
@@ -70,6 +73,16 @@ public class PathFile extends FileProviderList<FileProvider<PathConfig>> {
                         // 讀取Boss房間名稱列表
                         List<String> bossRoomNames = yml.getStringList("boss_room_names");
                         config.setBossRoomNames(bossRoomNames);
+
+                        // 讀取房間權重
+                        java.util.Map<String, Double> roomWeights = new LinkedHashMap<>();
+                        ConfigurationSection weightSection = yml.getConfigurationSection("room_weights");
+                        if (weightSection != null) {
+                            for (String roomId : weightSection.getKeys(false)) {
+                                roomWeights.put(roomId, weightSection.getDouble(roomId, 1.0));
+                            }
+                        }
+                        config.setRoomWeights(roomWeights);
                         
                         // 讀取地圖名稱
                         config.setMapName(yml.getString("map_name", ""));
@@ -96,6 +109,12 @@ public class PathFile extends FileProviderList<FileProvider<PathConfig>> {
                         
                         // 保存Boss房間名稱列表
                         yml.set("boss_room_names", config.getBossRoomNames());
+
+                        // 保存房間權重
+                        yml.set("room_weights", null);
+                        for (java.util.Map.Entry<String, Double> entry : config.getRoomWeights().entrySet()) {
+                            yml.set("room_weights." + entry.getKey(), entry.getValue());
+                        }
                         
                         // 保存地圖名稱
                         yml.set("map_name", config.getMapName());
@@ -159,7 +178,7 @@ public class PathFile extends FileProviderList<FileProvider<PathConfig>> {
         }
         
         // 創建路徑物件
-        return new Path(
+        Path path = new Path(
             pathId,
             config.getName(),
             map,
@@ -172,6 +191,8 @@ public class PathFile extends FileProviderList<FileProvider<PathConfig>> {
             config.getRoomNames(),
             config.getBossRoomNames()
         );
+        path.setRoomWeights(config.getRoomWeights());
+        return path;
     }
 
     /**
@@ -28,6 +28,11 @@ public class RoomFile extends FileProviderList<FileProvider<RoomConfig>> {
     private final java.util.Map<String, AbstractRoom> rooms = new HashMap<>();
     private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
 
+    /**
+     * 房間變更次數，路徑以此判斷房間索引是否需要重建
+     */
+    private int modCount;
+
     /**
      * 構造函數
      */
@@ -138,6 +143,7 @@ public class RoomFile extends FileProviderList<FileProvider<RoomConfig>> {
         // 將配置轉換成實際的房間物件
         AbstractRoom room = convertToRoom(roomId, config);
         rooms.put(roomId, room);
+        modCount++;
         
         return config;
     }
@@ -149,6 +155,7 @@ public class RoomFile extends FileProviderList<FileProvider<RoomConfig>> {
     public void removeProvider(String roomId) {
         configs.remove(roomId);
         rooms.remove(roomId);
+        modCount++;
     }
 
     /**
@@ -206,6 +213,7 @@ public class RoomFile extends FileProviderList<FileProvider<RoomConfig>> {
         // 更新房間物件
         AbstractRoom room = convertToRoom(roomId, config);
         rooms.put(roomId, room);
+        modCount++;
     }
 
     /**
@@ -226,6 +234,14 @@ public class RoomFile extends FileProviderList<FileProvider<RoomConfig>> {
         return rooms.get(roomId);
     }
     
+    /**
+     * 獲取房間變更次數
+     * @return 載入、保存或移除房間的次數
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
     /**
      * 獲取所有房間配置
      * @return 房間配置列表
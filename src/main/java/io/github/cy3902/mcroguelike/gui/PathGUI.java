@@ -85,17 +85,14 @@ public class PathGUI {
         AbstractsNode selected = selectedNodes.get(player);
         int currentPage = currentPages.get(player);
         
-        // 獲取按層級排序的節點
-        Map<Integer, List<AbstractsNode>> nodesByLevel = getNodesByLevel();
-        
         // 計算當前頁面要顯示的層級範圍
         int startLevel = currentPage * 5;
-        int endLevel = Math.min(startLevel + 5, nodesByLevel.size());
+        int endLevel = Math.min(startLevel + 5, path.getLevelCount());
 
         // 顯示每一層的節點
         for (int level = startLevel; level < endLevel; level++) {
-            List<AbstractsNode> nodes = nodesByLevel.get(level);
-            if (nodes == null || nodes.isEmpty()) continue;
+            List<AbstractsNode> nodes = path.getNodesByLevel(level);
+            if (nodes.isEmpty()) continue;
             
             // 獲取該層級的顯示位置
             List<Integer> slots = visibleslot.get(Math.min(nodes.size(), 5));
@@ -124,59 +121,9 @@ public class PathGUI {
         }
     }
 
-    private Map<Integer, List<AbstractsNode>> getNodesByLevel() {
-        Map<Integer, List<AbstractsNode>> nodesByLevel = new TreeMap<>();
-        Queue<AbstractsNode> queue = new LinkedList<>();
-        Set<AbstractsNode> visited = new HashSet<>();
-        
-        queue.add(path.getRoot());
-        visited.add(path.getRoot());
-        
-        while (!queue.isEmpty()) {
-            AbstractsNode current = queue.poll();
-            int level = current.getLevel();
-            
-            // 將節點添加到對應層級的列表中
-            nodesByLevel.computeIfAbsent(level, k -> new ArrayList<>()).add(current);
-            
-            // 添加子節點到隊列
-            for (AbstractsNode child : current.getChildren()) {
-                if (!visited.contains(child)) {
-                    visited.add(child);
-                    queue.add(child);
-                }
-            }
-        }
-
-        return nodesByLevel;
-    }
-
-    private int getTotalNodes() {
-        int count = 0;
-        Queue<AbstractsNode> queue = new LinkedList<>();
-        Set<AbstractsNode> visited = new HashSet<>();
-        
-        queue.add(path.getRoot());
-        visited.add(path.getRoot());
-        
-        while (!queue.isEmpty()) {
-            AbstractsNode current = queue.poll();
-            count++;
-            
-            for (AbstractsNode child : current.getChildren()) {
-                if (!visited.contains(child)) {
-                    visited.add(child);
-                    queue.add(child);
-                }
-            }
-        }
-        
-        return count;
-    }
-
     public void addNavigationButtons(Inventory gui, Player player) {
         int currentPage = currentPages.get(player);
-        int totalPages = (int) Math.ceil(path.getAllLevelNodes().size() / 5.0);
+        int totalPages = (int) Math.ceil(path.getLevelCount() / 5.0);
         
         // 上一頁按鈕
         if (currentPage > 0) {
@@ -266,26 +213,7 @@ public class PathGUI {
     }
 
     public AbstractsNode findNodeByValue(int value) {
-        Queue<AbstractsNode> queue = new LinkedList<>();
-        queue.add(path.getRoot());
-        Set<AbstractsNode> visited = new HashSet<>();
-        visited.add(path.getRoot());
-
-        while (!queue.isEmpty()) {
-            AbstractsNode current = queue.poll();
-            if (current.getValue() == value) {
-                return current;
-            }
-
-            for (AbstractsNode child : current.getChildren()) {
-                if (!visited.contains(child)) {
-                    visited.add(child);
-                    queue.add(child);
-                }
-            }
-        }
-
-        return null;
+        return path.getNodeById(value);
     }
 
 
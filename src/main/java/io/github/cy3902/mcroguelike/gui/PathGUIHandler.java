@@ -249,8 +249,12 @@ public class PathGUIHandler implements Listener {
         // 刪除路徑
         PartyPathManager partyPathManager = mcroguelike.getPartyPathManagerRegister().get(party.getPartyID());
         if (partyPathManager != null) {
-            partyPathManager.deletePath(partyPathManager.getPath().getPathUUID().toString());
-            mcroguelike.removePartyPathManagerRegister(party.getPartyID());
+            partyPathManager.getPath().thenAccept(path -> {
+                if (path != null) {
+                    partyPathManager.deletePath(path.getPathUUID().toString());
+                }
+                mcroguelike.removePartyPathManagerRegister(party.getPartyID());
+            });
         }
         player.sendMessage(lang.getMessage("path.gui.path_deleted"));
         player.closeInventory();
@@ -2,16 +2,28 @@ package io.github.cy3902.mcroguelike.manager;
 
 import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.abstracts.AbstractPath;
+import io.github.cy3902.mcroguelike.config.ConfigFile;
 import io.github.cy3902.mcroguelike.party.Party;
+import io.github.cy3902.mcroguelike.path.PathBinaryFormat;
+import io.github.cy3902.mcroguelike.utils.JsonStreamReader;
 
 import org.bukkit.entity.Player;
-import org.json.JSONObject;
+import org.json.JSONException;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -29,123 +41,177 @@ public class PartyPathManager {
         this.pathPlayers = new ArrayList<>();
     }
 
-    public void setPath(AbstractPath abstractPath) {
+    /**
+     * 設置隊伍的路徑，隊伍已有路徑時讀取已保存的路徑
+     * @param abstractPath 沒有路徑時使用的新路徑
+     * @return 隊伍的路徑，在主執行緒完成
+     */
+    public CompletableFuture<AbstractPath> setPath(AbstractPath abstractPath) {
         // 檢查是否已存在路徑
-        String existingPath = mcroguelike.getSql().select(
-            "SELECT path FROM " + "mcroguelike_party_path" + " WHERE party_uuid = ?",
-            new String[]{party.getPartyID().toString()}
-        );
+        return findPathID().thenApply(existingPath -> {
+            if (existingPath == null) {
+                return createPath(abstractPath);
+            }
 
-        if (existingPath == null) {
-            // 生成樹狀結構
-            abstractPath.generateTree();
-
-            // 將路徑轉換為 JSON
-            String pathJson = abstractPath.convertPathToJson(party);
-
-            pathPlayers = party.getMembers().stream()
-                .map(Player::getUniqueId)
-                .collect(Collectors.toList());
-
-            // 插入新路徑
-            mcroguelike.getSql().update(
-                "INSERT INTO " + "mcroguelike_party_path" + " (party_uuid, path) VALUES (?, ?)",
-                new String[]{party.getPartyID().toString(), abstractPath.getPathUUID().toString()}
-            );
-
-            // 創建並寫入檔案
-            savePathToFile(abstractPath.getPathUUID().toString(), pathJson);
-            
-            this.path = abstractPath;
-        } else {
-            // 從數據庫讀取 JSON 數據檔案名稱
-            String pathJson = mcroguelike.getSql().select(
-                "SELECT path FROM " + "mcroguelike_party_path" + " WHERE party_uuid = ?",
-                new String[]{party.getPartyID().toString()}
-            );
-
-            if (pathJson != null) {
-                AbstractPath loadedPath = loadPathFromFile(pathJson);
-                if (loadedPath != null) {
-                    this.path = loadedPath;
-                    pathPlayers.addAll(loadedPath.getPartyMembers());
-                } else {
-                    // 如果讀取失敗，刪除舊路徑並重新生成
-                    deletePath(pathJson);
-                    setPath(abstractPath);
-                }
+            // 從檔案讀取已保存的路徑
+            AbstractPath loadedPath = loadPathFromFile(existingPath);
+            if (loadedPath == null) {
+                // 如果讀取失敗，刪除舊路徑並重新生成
+                deletePath(existingPath);
+                return createPath(abstractPath);
             }
-        }
+            this.path = loadedPath;
+            pathPlayers.addAll(loadedPath.getPartyMembers());
+            return loadedPath;
+        });
     }
 
-    public AbstractPath getPath() {
-        if (this.path == null) {
-            String existingPath = mcroguelike.getSql().select(
-                "SELECT path FROM " + "mcroguelike_party_path" + " WHERE party_uuid = ?",
-                new String[]{party.getPartyID().toString()}
-            );
+    /**
+     * 為沒有路徑的隊伍生成並保存新路徑
+     * @param abstractPath 新路徑
+     * @return 新路徑
+     */
+    private AbstractPath createPath(AbstractPath abstractPath) {
+        // 生成樹狀結構
+        abstractPath.generateTree();
+
+        pathPlayers = party.getMembers().stream()
+            .map(Player::getUniqueId)
+            .collect(Collectors.toList());
+
+        // 插入新路徑
+        mcroguelike.getSql().executeAsync(
+            "INSERT INTO " + "mcroguelike_party_path" + " (party_uuid, path) VALUES (?, ?)",
+            new Object[]{party.getPartyID(), abstractPath.getPathUUID().toString()}
+        );
+        party.setPathID(abstractPath.getPathUUID().toString());
+
+        // 創建並寫入檔案
+        savePathToFile(abstractPath.getPathUUID().toString(), abstractPath, party);
+
+        this.path = abstractPath;
+        return abstractPath;
+    }
 
-            if (existingPath != null) {
+    /**
+     * 獲取隊伍的路徑，尚未讀取時從檔案讀取
+     * @return 路徑，沒有路徑時為 null，在主執行緒完成
+     */
+    public CompletableFuture<AbstractPath> getPath() {
+        if (this.path != null) {
+            return CompletableFuture.completedFuture(this.path);
+        }
+        return findPathID().thenApply(existingPath -> {
+            if (existingPath != null && this.path == null) {
                 this.path = loadPathFromFile(existingPath);
-            } else {
-                deletePath(existingPath);
             }
-        }
-        return this.path;
+            return this.path;
+        });
     }
 
     public void deletePath(String pathJson) {
-        mcroguelike.getSql().delete(
+        mcroguelike.getSql().executeAsync(
             "DELETE FROM " + "mcroguelike_party_path" + " WHERE party_uuid = ?",
-            new String[]{party.getPartyID().toString()}
+            new Object[]{party.getPartyID()}
         );
-        // 刪除檔案
-        File file = new File(mcroguelike.getDataFolder(), "PlayerPath/" + pathJson + ".json");
-        if (file.exists()) {
-            file.delete();
+        party.setPathID(null);
+        // 刪除兩種格式的檔案
+        for (ConfigFile.PathFileFormat format : ConfigFile.PathFileFormat.values()) {
+            File file = getPathFile(pathJson, format);
+            if (file.exists()) {
+                file.delete();
+            }
         }
         this.path = null;
     }
 
     /**
-     * 將路徑保存到檔案
-     * @param fileName 檔案名稱
-     * @param pathJson JSON 內容
+     * 取得隊伍的路徑 ID。隊伍資料由 PartyRepository 讀入時已帶有路徑，直接使用記憶體中的資料；
+     * 其餘隊伍在背景查詢資料庫，結果在主執行緒返回
+     * @return 路徑 ID，沒有路徑時為 null
      */
-    private void savePathToFile(String fileName, String pathJson) {
-        File file = new File(mcroguelike.getDataFolder(), "PlayerPath/" + fileName + ".json");
-        if (!file.exists()) {
-            try {
-                file.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
+    private CompletableFuture<String> findPathID() {
+        if (party.getPathID() != null || mcroguelike.getPartyRepository().isPathKnown(party.getPartyID())) {
+            return CompletableFuture.completedFuture(party.getPathID());
         }
+        return mcroguelike.getSql().queryFirstAsync(
+            "SELECT path FROM " + "mcroguelike_party_path" + " WHERE party_uuid = ?",
+            new Object[]{party.getPartyID()},
+            rs -> rs.getString("path")
+        ).thenApplyAsync(pathID -> {
+            // 查詢期間可能已經設置了路徑，以記憶體中的資料為準
+            if (party.getPathID() != null) {
+                return party.getPathID();
+            }
+            if (pathID != null) {
+                party.setPathID(pathID);
+            }
+            return pathID;
+        }, mcroguelike.getSchemLoader().getMainThreadExecutor());
+    }
+
+    /**
+     * 獲取路徑檔案
+     * @param fileName 檔案名稱
+     * @param format 檔案格式
+     * @return 路徑檔案
+     */
+    private File getPathFile(String fileName, ConfigFile.PathFileFormat format) {
+        String extension = format == ConfigFile.PathFileFormat.binary ? PathBinaryFormat.FILE_EXTENSION : ".json";
+        return new File(mcroguelike.getDataFolder(), "PlayerPath/" + fileName + extension);
+    }
+
+    /**
+     * 以設定的格式將路徑寫出到檔案，並刪除另一種格式的舊檔案
+     * @param fileName 檔案名稱
+     * @param path 路徑
+     * @param owner 擁有路徑的隊伍，為 null 時保存路徑讀取時的成員
+     */
+    private void savePathToFile(String fileName, AbstractPath path, Party owner) {
+        ConfigFile.PathFileFormat format = mcroguelike.getConfigFile().getPathFileFormat();
+        File file = getPathFile(fileName, format);
         try {
-            Files.write(file.toPath(), pathJson.getBytes());
+            if (format == ConfigFile.PathFileFormat.binary) {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+                    path.writeBinary(owner, out);
+                }
+            } else {
+                try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                    path.writeJson(owner, writer);
+                }
+            }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        for (ConfigFile.PathFileFormat other : ConfigFile.PathFileFormat.values()) {
+            File oldFile = getPathFile(fileName, other);
+            if (other != format && oldFile.exists()) {
+                oldFile.delete();
+            }
         }
     }
 
     /**
-     * 從檔案讀取路徑
+     * 從檔案讀取路徑，優先讀取二進位檔案，格式與設定不同時轉換為設定的格式
      * @param fileName 檔案名稱
      * @return 讀取到的路徑，如果讀取失敗則返回 null
      */
     private AbstractPath loadPathFromFile(String fileName) {
-        File file = new File(mcroguelike.getDataFolder(), "PlayerPath/" + fileName + ".json");
+        ConfigFile.PathFileFormat format = ConfigFile.PathFileFormat.binary;
+        File file = getPathFile(fileName, format);
+        if (!file.exists()) {
+            format = ConfigFile.PathFileFormat.json;
+            file = getPathFile(fileName, format);
+        }
         if (!file.exists()) {
             return null;
         }
     
         try {
-            String jsonContent = new String(Files.readAllBytes(file.toPath()));
-            JSONObject json = new JSONObject(jsonContent);
-            String pathType = json.getString("pathType");
+            String pathType = readPathType(file, format);
     
-            Class<? extends AbstractPath> pathClass = mcroguelike.getPathRegister().get(pathType);
+            Class<? extends AbstractPath> pathClass = pathType != null ? mcroguelike.getPathRegister().get(pathType) : null;
             if (pathClass == null) {
                 deletePath(fileName);
                 return null;
@@ -154,11 +220,32 @@ public class PartyPathManager {
             // 用反射建立實例（確保有 public 無參數建構子）
             AbstractPath path = pathClass.getDeclaredConstructor().newInstance();
     
-            // 使用你定義的方法轉換 JSON
-            if (!path.convertPathFromJson(jsonContent)) {
+            // 逐一讀取節點，不建立完整的 JSON 物件
+            boolean loaded;
+            try {
+                if (format == ConfigFile.PathFileFormat.binary) {
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+                        loaded = path.readBinary(in);
+                    }
+                } else {
+                    try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                        loaded = path.readJson(reader);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // 檔案內容損壞，與讀取失敗同樣刪除後重新生成
+                mcroguelike.getLogger().log(Level.WARNING, "Corrupted path file: " + file.getName(), e);
+                loaded = false;
+            }
+            if (!loaded) {
                 deletePath(fileName);
                 return null;
             }
+
+            // 舊格式的檔案轉換為設定的格式，保留檔案中的隊伍成員
+            if (format != mcroguelike.getConfigFile().getPathFileFormat()) {
+                savePathToFile(fileName, path, null);
+            }
     
             return path;
         } catch (IOException | InstantiationException | IllegalAccessException |
@@ -167,4 +254,30 @@ public class PartyPathManager {
             return null;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 只讀取路徑類型，二進位檔案讀取檔案開頭，JSON 檔案讀取到 pathType 欄位為止
+     * @param file 路徑檔案
+     * @param format 檔案格式
+     * @return 路徑類型，檔案格式錯誤或沒有此欄位時為 null
+     */
+    private static String readPathType(File file, ConfigFile.PathFileFormat format) throws IOException {
+        if (format == ConfigFile.PathFileFormat.binary) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+                return PathBinaryFormat.readPathType(in);
+            }
+        }
+        try (JsonStreamReader in = new JsonStreamReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("pathType".equals(in.nextName())) {
+                    return in.nextString();
+                }
+                in.skipValue();
+            }
+            return null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+}
@@ -5,16 +5,19 @@ import io.github.cy3902.mcroguelike.abstracts.AbstractPath;
 import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
 import io.github.cy3902.mcroguelike.abstracts.AbstractRoom;
 import io.github.cy3902.mcroguelike.config.Lang;
+import io.github.cy3902.mcroguelike.manager.room.RoomInstance;
+import io.github.cy3902.mcroguelike.manager.room.RoomInstancePool;
 import io.github.cy3902.mcroguelike.manager.room.RoomManager;
 import io.github.cy3902.mcroguelike.manager.room.SurvivalRoomManager;
+import io.github.cy3902.mcroguelike.map.ArenaSlot;
 import io.github.cy3902.mcroguelike.party.Party;
+import io.github.cy3902.mcroguelike.schem.PlacementPlan;
 import io.github.cy3902.mcroguelike.schem.Schem;
 
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
-import java.io.File;
 import java.util.List;
 
 /**
@@ -41,6 +44,7 @@ public class GameStartManager {
      */
     public GameStartManager(Party party, AbstractPath path, AbstractRoom room ,boolean isSpecial) {
         this.path = path;
+        this.party = party;
         this.isSpecial = isSpecial;
         this.world = path.getMap().getMapLocation().getLocation().getWorld();
         this.score = 0;
@@ -72,50 +76,70 @@ public class GameStartManager {
             return;
         }
         
-        // 計算位置
-        Location baseLocation = map.getMapLocation().getLocation();
-        if (baseLocation == null) {
+        // 檢查格位網格的基準位置
+        if (map.getStructureSpawnPoint() == null) {
             party.partyChat(lang.getMessage("path.gui.invalid_map_location"));
             return;
         }
 
-        // 計算生成點（根據間隔）
-        int separation = map.getStructureSpawnSeparation();
-        Location spawnLocation = calculateSpawnLocation(baseLocation, separation);
-        
-        
-        // 生成結構
-        if (roomManager != null) {
-            // 更新地圖位置
-            map.updateMapLocation();
-            roomManager.getRoom().loadSchematics(spawnLocation, (success) -> {
-                if (success) {
-                    roomManager.setBaseLocation(spawnLocation);
-                    mcRogueLike.addGameStartManagerRegister(party.getPartyID(), this);
-
-                    // 傳送玩家到生成點
-                    Location playerSpawnPoint = roomManager.getRoom().getPlayerSpawnPoint(world);
-                    File schemFile = new File(mcRogueLike.getDataFolder() + "/schematics/" + roomManager.getRoom().getStructureName() + ".schem");
-                    Schem schem = new Schem(roomManager.getRoom().getStructureName(), schemFile, world);
-                    teleportPlayers(party.getOnlineMembers(), calculatePlayerSpawnLocation(schem, spawnLocation, playerSpawnPoint));
-                    roomManager.start(party, world);
-
-                    // 設置房間結束回調
-                    roomManager.setOnEndCallback(() -> {
-                        Integer score = roomManager.calculate();
-                        if (score != null && score > 0) {
-                            // 分數大於0，可以繼續遊戲
-                            this.score += score;
-                            //teleportPlayers(players, calculatePlayerSpawnLocation(schem, spawnLocation, playerSpawnPoint));
-                        } else {
-                            // 分數為0或null，遊戲失敗
-                            party.partyChat(lang.getMessage("path.gui.game_failed"));
-                            stopGame();
-                        }
-                    });
-                }
-            });
+        // 優先使用預先貼上的房間實例
+        RoomInstancePool pool = mcRogueLike.getRoomInstancePool();
+        RoomInstance instance = pool != null ? pool.acquire(map, roomManager.getRoom()) : null;
+        if (instance != null) {
+            roomManager.setArenaSlot(instance.getSlot());
+            roomManager.setRoomInstance(instance);
+            onRoomReady(instance.getSchem(), instance.getSlot().getLocation());
+            return;
         }
+
+        // 租用競技場格位
+        ArenaSlot slot = map.getArenaSlotAllocator().lease();
+        if (slot == null) {
+            party.partyChat(lang.getMessage("path.gui.arena_full"));
+            return;
+        }
+        Location spawnLocation = slot.getLocation();
+        roomManager.setArenaSlot(slot);
+
+        // 生成結構
+        roomManager.getRoom().loadSchematicsAsync(slot).thenAcceptAsync(schem -> {
+            if (schem == null) {
+                roomManager.releaseArenaSlot();
+                return;
+            }
+            onRoomReady(schem, spawnLocation);
+        }, mcRogueLike.getSchemLoader().getMainThreadExecutor());
+    }
+
+    /**
+     * 結構貼上完成後傳送玩家並開始房間
+     * @param schem 已貼上的結構
+     * @param spawnLocation 結構貼上位置
+     */
+    private void onRoomReady(Schem schem, Location spawnLocation) {
+        PlacementPlan.Variant placement = roomManager.getRoom().getPlacementPlan(schem.getEntry()).getVariant(0);
+
+        roomManager.setBaseLocation(spawnLocation);
+        roomManager.getArenaSlot().startTracking(mcRogueLike.getConfigFile().getRoomResetFullRatio());
+        mcRogueLike.addGameStartManagerRegister(party.getPartyID(), this);
+
+        // 傳送玩家到生成點
+        teleportPlayers(party.getOnlineMembers(), placement.getPlayerSpawnLocation(spawnLocation));
+        roomManager.start(party, world);
+
+        // 設置房間結束回調
+        roomManager.setOnEndCallback(() -> {
+            Integer score = roomManager.calculate();
+            if (score != null && score > 0) {
+                // 分數大於0，可以繼續遊戲
+                this.score += score;
+                //teleportPlayers(players, placement.getPlayerSpawnLocation(spawnLocation));
+            } else {
+                // 分數為0或null，遊戲失敗
+                party.partyChat(lang.getMessage("path.gui.game_failed"));
+                stopGame();
+            }
+        });
     }
 
     
@@ -140,43 +164,10 @@ public class GameStartManager {
      */
     public void stopGame() {
         roomManager.stop();
+        roomManager.releaseArenaSlot();
         mcRogueLike.removeGameStartManagerRegister(party.getPartyID());
     }
 
-    /**
-     * 計算結構生成點
-     * @param baseLocation 基礎位置
-     * @param separation 間隔
-     * @return 生成點
-     */
-    private Location calculateSpawnLocation(Location baseLocation, int separation) {
-        // 根據間隔計算新的位置
-        // 這裡可以根據需要調整計算邏輯
-        return baseLocation.clone().add(separation, 0, 0);
-    }
-
-    /**
-     * 計算玩家生成點
-     * @param schem 結構
-     * @param baseLocation 基礎位置
-     * @param playerSpawnPoint 玩家出生點
-     * @return 生成點
-     */
-    private Location calculatePlayerSpawnLocation(Schem schem, Location baseLocation, Location playerSpawnPoint) {
-        Location centerPoint = schem.getCenterPoint();
-        if (centerPoint == null) {
-            return baseLocation;
-        }
-    
-        // 3. 計算 playerSpawnPoint 相對於 schematic 的偏移
-        double dx = playerSpawnPoint.getX() - centerPoint.getX();
-        double dy = playerSpawnPoint.getY() - centerPoint.getY();
-        double dz = playerSpawnPoint.getZ() - centerPoint.getZ();;
-        // 4. 套用偏移到實際 paste 的 baseLocation
-        return baseLocation.clone().add(dx, dy, dz);
-    }
-    
-
     /**
      * 獲取路徑
      * @return 路徑
@@ -0,0 +1,83 @@
+package io.github.cy3902.mcroguelike.manager.room;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
+import io.github.cy3902.mcroguelike.abstracts.AbstractRoom;
+import io.github.cy3902.mcroguelike.map.ArenaSlot;
+import io.github.cy3902.mcroguelike.schem.Schem;
+
+/**
+ * 房間實例
+ * 已經貼上在競技場格位中的房間結構，由房間實例池管理並重複使用
+ */
+public class RoomInstance {
+
+    /**
+     * 房間實例狀態
+     */
+    public enum State {
+        PASTING,    // 貼上中
+        IDLE,       // 閒置，可直接使用
+        IN_USE,     // 使用中
+        RESETTING   // 重置中
+    }
+
+    private final RoomInstancePool pool;
+    private final AbstractRoom room;
+    private final AbstractMap map;
+    private final ArenaSlot slot;
+    private Schem schem;
+    private State state = State.PASTING;
+
+    /**
+     * 建構子
+     * @param pool 所屬的房間實例池
+     * @param room 房間
+     * @param map 地圖
+     * @param slot 競技場格位
+     */
+    RoomInstance(RoomInstancePool pool, AbstractRoom room, AbstractMap map, ArenaSlot slot) {
+        this.pool = pool;
+        this.room = room;
+        this.map = map;
+        this.slot = slot;
+    }
+
+    /**
+     * 房間結束後歸還實例，實例池會在背景重置或回收
+     */
+    public void release() {
+        pool.release(this);
+    }
+
+    public AbstractRoom getRoom() {
+        return room;
+    }
+
+    public AbstractMap getMap() {
+        return map;
+    }
+
+    public ArenaSlot getSlot() {
+        return slot;
+    }
+
+    /**
+     * 取得已貼上的結構
+     * @return 結構，尚未貼上完成時為 null
+     */
+    public Schem getSchem() {
+        return schem;
+    }
+
+    void setSchem(Schem schem) {
+        this.schem = schem;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,302 @@
+package io.github.cy3902.mcroguelike.manager.room;
+
+import com.sk89q.worldedit.math.BlockVector3;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
+import io.github.cy3902.mcroguelike.abstracts.AbstractRoom;
+import io.github.cy3902.mcroguelike.map.ArenaSlot;
+import io.github.cy3902.mcroguelike.map.RoomBlockTracker;
+import io.github.cy3902.mcroguelike.schem.SchemCache;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+/**
+ * 房間實例池
+ * 為熱門房間預先在地圖上貼上閒置的結構，房間開始時直接租用，只需要傳送玩家。
+ * 使用過的實例在背景還原變更的方塊後放回池中，池的大小依照最近的需求在最小與最大值之間調整。
+ */
+public class RoomInstancePool {
+
+    /**
+     * 單一房間的實例池設定
+     */
+    public static class Setting {
+        private final String map;
+        private final int min;
+        private final int max;
+
+        public Setting(String map, int min, int max) {
+            this.map = map;
+            this.min = Math.max(0, min);
+            this.max = Math.max(this.min, max);
+        }
+
+        public String getMap() {
+            return map;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+    }
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final Map<String, Setting> settings;
+    private final long demandWindowMillis;
+    private final Map<String, List<RoomInstance>> instances = new HashMap<>();
+    private final Map<String, Deque<Long>> demand = new HashMap<>();
+    private BukkitTask maintenanceTask;
+    private boolean shutdown;
+
+    /**
+     * 建構子
+     * @param settings 房間ID與實例池設定
+     * @param demandWindowSeconds 計算需求的時間範圍（秒）
+     */
+    public RoomInstancePool(Map<String, Setting> settings, int demandWindowSeconds) {
+        this.settings = settings;
+        this.demandWindowMillis = Math.max(1, demandWindowSeconds) * 1000L;
+    }
+
+    /**
+     * 開始定期維護實例池
+     * @param intervalSeconds 維護間隔（秒）
+     */
+    public void start(int intervalSeconds) {
+        if (settings.isEmpty()) {
+            return;
+        }
+        long interval = Math.max(1, intervalSeconds) * 20L;
+        maintenanceTask = Bukkit.getScheduler().runTaskTimer(mcroguelike, this::maintain, 20L, interval);
+    }
+
+    /**
+     * 停止維護並歸還所有閒置實例的格位
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (maintenanceTask != null) {
+            maintenanceTask.cancel();
+            maintenanceTask = null;
+        }
+        for (List<RoomInstance> list : instances.values()) {
+            for (RoomInstance instance : new ArrayList<>(list)) {
+                if (instance.getState() == RoomInstance.State.IDLE) {
+                    discard(instance);
+                }
+            }
+        }
+    }
+
+    /**
+     * 租用閒置的房間實例
+     * @param map 地圖
+     * @param room 房間
+     * @return 房間實例，沒有閒置實例時返回 null
+     */
+    public RoomInstance acquire(AbstractMap map, AbstractRoom room) {
+        Setting setting = settings.get(room.getRoomId());
+        if (setting == null || shutdown || !setting.getMap().equals(map.getName())) {
+            return null;
+        }
+
+        // 未命中也計入需求，讓實例池擴張
+        demand.computeIfAbsent(room.getRoomId(), k -> new ArrayDeque<>()).addLast(System.currentTimeMillis());
+
+        for (RoomInstance instance : getInstances(room.getRoomId())) {
+            if (instance.getState() == RoomInstance.State.IDLE && instance.getRoom() == room) {
+                instance.setState(RoomInstance.State.IN_USE);
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 歸還使用過的實例，實例內的玩家會先被傳送出去，超過目標數量時回收格位，否則在背景重置
+     * @param instance 房間實例
+     */
+    void release(RoomInstance instance) {
+        if (instance.getState() != RoomInstance.State.IN_USE) {
+            return;
+        }
+        String roomId = instance.getRoom().getRoomId();
+        if (shutdown || countAvailable(roomId) >= getTargetSize(roomId)) {
+            discard(instance);
+            return;
+        }
+        // 先移出上一個隊伍，實例重置完成並標記為閒置後才會再被租用
+        instance.getSlot().evacuate();
+        instance.setState(RoomInstance.State.RESETTING);
+        instance.getSlot().removeEntities();
+        reset(instance);
+    }
+
+    /**
+     * 重置實例，只還原房間進行期間變更的方塊；變更過多或結構已更新時整個重新貼上
+     */
+    private void reset(RoomInstance instance) {
+        RoomBlockTracker tracker = instance.getSlot().stopTracking();
+        SchemCache.Entry entry = instance.getSchem() != null ? instance.getSchem().getEntry() : null;
+        boolean fresh = entry != null && mcroguelike.getSchemCache().getIfFresh(entry.getName()) == entry;
+        if (tracker == null || tracker.needsFullReset() || !fresh) {
+            paste(instance);
+            return;
+        }
+
+        ArenaSlot slot = instance.getSlot();
+        BlockVector3 target = instance.getRoom().getPlacementPlan(entry).getVariant(0).getPasteTarget(slot.getLocation());
+        tracker.restore(slot.getLocation().getWorld().getName(), entry.getClipboard(), target, mcroguelike.getConfigFile().getRoomResetBatchSize())
+            .thenAccept(success -> {
+                if (!success) {
+                    paste(instance);
+                    return;
+                }
+                instance.setState(RoomInstance.State.IDLE);
+                if (shutdown) {
+                    discard(instance);
+                }
+            });
+    }
+
+    /**
+     * 依照需求補充或縮減實例，每次維護每個房間最多變動一個實例
+     */
+    private void maintain() {
+        for (Map.Entry<String, Setting> entry : settings.entrySet()) {
+            String roomId = entry.getKey();
+            int target = getTargetSize(roomId);
+            int available = countAvailable(roomId);
+
+            if (available < target) {
+                create(roomId, entry.getValue());
+            } else if (available > target) {
+                for (RoomInstance instance : getInstances(roomId)) {
+                    if (instance.getState() == RoomInstance.State.IDLE) {
+                        discard(instance);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void create(String roomId, Setting setting) {
+        AbstractRoom room = mcroguelike.getRoomFile().getRoom(roomId);
+        AbstractMap map = mcroguelike.getMapFile().getMap(setting.getMap());
+        if (room == null || map == null) {
+            return;
+        }
+        ArenaSlot slot = map.getArenaSlotAllocator().lease();
+        if (slot == null) {
+            return;
+        }
+        RoomInstance instance = new RoomInstance(this, room, map, slot);
+        getInstances(roomId).add(instance);
+        paste(instance);
+    }
+
+    /**
+     * 貼上實例的結構，完成後標記為閒置
+     */
+    private void paste(RoomInstance instance) {
+        instance.getRoom().loadSchematicsAsync(instance.getSlot()).thenAcceptAsync(schem -> {
+            if (schem == null) {
+                mcroguelike.getLogger().log(Level.WARNING, "Failed to paste pooled room: " + instance.getRoom().getRoomId());
+                discard(instance);
+                return;
+            }
+            instance.setSchem(schem);
+            instance.setState(RoomInstance.State.IDLE);
+            if (shutdown) {
+                discard(instance);
+            }
+        }, mcroguelike.getSchemLoader().getMainThreadExecutor());
+    }
+
+    /**
+     * 移除實例並歸還格位
+     */
+    private void discard(RoomInstance instance) {
+        getInstances(instance.getRoom().getRoomId()).remove(instance);
+        instance.getSlot().release();
+    }
+
+    private List<RoomInstance> getInstances(String roomId) {
+        return instances.computeIfAbsent(roomId, k -> new ArrayList<>());
+    }
+
+    /**
+     * 計算未被使用的實例數量（閒置、貼上中與重置中）
+     */
+    private int countAvailable(String roomId) {
+        int count = 0;
+        for (RoomInstance instance : getInstances(roomId)) {
+            if (instance.getState() != RoomInstance.State.IN_USE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 計算房間的目標閒置實例數量，等於最近需求次數並限制在最小與最大值之間
+     * @param roomId 房間ID
+     * @return 目標數量
+     */
+    public int getTargetSize(String roomId) {
+        Setting setting = settings.get(roomId);
+        if (setting == null) {
+            return 0;
+        }
+        Deque<Long> timestamps = demand.get(roomId);
+        int recent = 0;
+        if (timestamps != null) {
+            long cutoff = System.currentTimeMillis() - demandWindowMillis;
+            while (!timestamps.isEmpty() && timestamps.peekFirst() < cutoff) {
+                timestamps.pollFirst();
+            }
+            recent = timestamps.size();
+        }
+        return Math.max(setting.getMin(), Math.min(setting.getMax(), recent));
+    }
+
+    /**
+     * 獲取房間各狀態的實例數量
+     * @param roomId 房間ID
+     * @return 狀態與數量
+     */
+    public Map<RoomInstance.State, Integer> getStateCounts(String roomId) {
+        Map<RoomInstance.State, Integer> counts = new HashMap<>();
+        for (RoomInstance.State state : RoomInstance.State.values()) {
+            counts.put(state, 0);
+        }
+        for (RoomInstance instance : getInstances(roomId)) {
+            counts.merge(instance.getState(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * 獲取所有實例池設定
+     * @return 房間ID與設定
+     */
+    public Map<String, Setting> getSettings() {
+        return new TreeMap<>(settings);
+    }
+}
@@ -3,6 +3,7 @@ package io.github.cy3902.mcroguelike.manager.room;
 import io.github.cy3902.mcroguelike.abstracts.AbstractRoom;
 import io.github.cy3902.mcroguelike.bossbar.bossbar;
 import io.github.cy3902.mcroguelike.manager.game.GameStartManager;
+import io.github.cy3902.mcroguelike.map.ArenaSlot;
 import io.github.cy3902.mcroguelike.party.Party;
 
 import org.bukkit.Location;
@@ -130,4 +131,33 @@ public interface RoomManager {
      * @param spawnLocation 生成點
      */
     void setBaseLocation(Location baseLocation);
+
+    /**
+     * 設置房間使用的競技場格位
+     * @param arenaSlot 競技場格位
+     */
+    void setArenaSlot(ArenaSlot arenaSlot);
+
+    /**
+     * 取得房間使用的競技場格位
+     * @return 競技場格位
+     */
+    ArenaSlot getArenaSlot();
+
+    /**
+     * 設置房間使用的預先貼上實例
+     * @param roomInstance 房間實例
+     */
+    void setRoomInstance(RoomInstance roomInstance);
+
+    /**
+     * 取得房間使用的預先貼上實例
+     * @return 房間實例，未使用實例池時為 null
+     */
+    RoomInstance getRoomInstance();
+
+    /**
+     * 歸還房間使用的競技場格位，使用實例池時改為歸還實例
+     */
+    void releaseArenaSlot();
 } 
\ No newline at end of file
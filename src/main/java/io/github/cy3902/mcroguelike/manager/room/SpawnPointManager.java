@@ -1,6 +1,5 @@
 package io.github.cy3902.mcroguelike.manager.room;
 
-import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
@@ -18,8 +17,8 @@ import io.lumine.mythic.api.adapters.AbstractLocation;
 import io.lumine.mythic.api.mobs.MythicMob;
 import io.lumine.mythic.bukkit.MythicBukkit;
 import io.github.cy3902.mcroguelike.abstracts.AbstractMob;
+import io.github.cy3902.mcroguelike.schem.PlacementPlan;
 import io.github.cy3902.mcroguelike.schem.Schem;
-import io.github.cy3902.mcroguelike.utils.LocationUtils;
 import io.lumine.mythic.core.mobs.ActiveMob;
 
 public class SpawnPointManager {
@@ -51,43 +50,37 @@ public class SpawnPointManager {
 
 
     /**
-     * 計算怪物生成點
-     * @param schem 結構
-     * @param baseLocation 基礎位置
-     * @param playerSpawnPoint 怪物出生點
-     * @return 生成點
+     * 生成怪物
+     * @param location 生成位置
      */
-    private Location calculateMobSpawnLocation(Schem schem, Location baseLocation, Location mobSpawnPoint) {
-        Location centerPoint = schem.getCenterPoint();
-        if (centerPoint == null) {
-            return baseLocation;
+    public void spawn(Location baselocation) {
+        if (!isSpawning) {
+            return;
         }
-    
-        // 3. 計算 playerSpawnPoint 相對於 schematic 的偏移
-        double dx = mobSpawnPoint.getX() - centerPoint.getX();
-        double dy = mobSpawnPoint.getY() - centerPoint.getY();
-        double dz = mobSpawnPoint.getZ() - centerPoint.getZ();
-    
-        // 4. 套用偏移到實際 paste 的 baseLocation
-        return baseLocation.clone().add(dx, dy, dz);
+
+        // 結構通常已在快取中，此時會立即在主執行緒完成
+        Schem.loadAsync(room.getStructureName(), baselocation.getWorld()).thenAcceptAsync(
+            schem -> spawn(schem, baselocation),
+            MCRogueLike.getInstance().getSchemLoader().getMainThreadExecutor()
+        );
     }
-    
 
     /**
-     * 生成怪物
-     * @param location 生成位置
+     * 依照房間的放置計畫在各生成點生成怪物
+     * @param schem 結構
+     * @param baselocation 基礎位置
      */
-    public void spawn(Location baselocation) {
-        if (!isSpawning) {
+    private void spawn(Schem schem, Location baselocation) {
+        if (!isSpawning || schem.getEntry() == null) {
             return;
         }
 
-        File schemFile = new File(MCRogueLike.getInstance().getDataFolder() + "/schematics/" + room.getStructureName() + ".schem");
-        Schem schem = new Schem(room.getStructureName(), schemFile, baselocation.getWorld());
-        
+        PlacementPlan.Variant placement = room.getPlacementPlan(schem.getEntry()).getVariant(0);
         for (SpawnPoint spawnpoint : spawnPoints) {
-            Location spawnpointLocation = LocationUtils.stringToLocation(baselocation.getWorld(), spawnpoint.getLocation());
-            Location location = calculateMobSpawnLocation(schem, baselocation, spawnpointLocation);
+            Location location = placement.getSpawnPointLocation(spawnpoint, baselocation);
+            if (location == null) {
+                continue;
+            }
             if (spawnpoint.getSpawnpoint().canSpawn(location)) {
                 // 生成所有怪物類型
                 List<AbstractMob> mobs = spawnpoint.getSpawnpoint().getMobs();
@@ -5,6 +5,7 @@ import io.github.cy3902.mcroguelike.abstracts.AbstractRoom;
 import io.github.cy3902.mcroguelike.bossbar.bossbar;
 import io.github.cy3902.mcroguelike.config.Lang;
 import io.github.cy3902.mcroguelike.manager.game.GameStartManager;
+import io.github.cy3902.mcroguelike.map.ArenaSlot;
 import io.github.cy3902.mcroguelike.party.Party;
 
 import org.bukkit.Bukkit;
@@ -37,6 +38,8 @@ public class SurvivalRoomManager implements RoomManager {
     private List<Player> deadPlayers;
     private final Lang lang = mcRogueLike.getLang();
     private Runnable onEndCallback;
+    private ArenaSlot arenaSlot;
+    private RoomInstance roomInstance;
 
     // 房間狀態
     private boolean isRunning;
@@ -185,6 +188,9 @@ public class SurvivalRoomManager implements RoomManager {
             unbindPlayer(player);
         }
 
+        // 歸還競技場格位，仍在格位內的玩家會先被傳送到結構生成基準點
+        releaseArenaSlot();
+
         // 執行結束回調
         if (onEndCallback != null) {
             onEndCallback.run();
@@ -292,6 +298,42 @@ public class SurvivalRoomManager implements RoomManager {
         this.baseLocation = baseLocation;
     }
     
+    @Override
+    public void setArenaSlot(ArenaSlot arenaSlot) {
+        this.arenaSlot = arenaSlot;
+    }
+
+    @Override
+    public ArenaSlot getArenaSlot() {
+        return arenaSlot;
+    }
+
+    @Override
+    public void setRoomInstance(RoomInstance roomInstance) {
+        this.roomInstance = roomInstance;
+    }
+
+    @Override
+    public RoomInstance getRoomInstance() {
+        return roomInstance;
+    }
+
+    /**
+     * 歸還競技場格位，重複呼叫不會有作用
+     */
+    @Override
+    public void releaseArenaSlot() {
+        if (roomInstance != null) {
+            roomInstance.release();
+            roomInstance = null;
+            arenaSlot = null;
+        }
+        if (arenaSlot != null) {
+            arenaSlot.release();
+            arenaSlot = null;
+        }
+    }
+
     /**
      * 開始生成怪物
      * @param world 世界
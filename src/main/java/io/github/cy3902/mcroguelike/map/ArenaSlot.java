@@ -0,0 +1,234 @@
+package io.github.cy3902.mcroguelike.map;
+
+import com.sk89q.worldedit.math.BlockVector3;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.util.BoundingBox;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 競技場格位
+ * 地圖上固定的結構貼上位置，房間開始時租用，結束時清除並歸還
+ */
+public class ArenaSlot {
+
+    /**
+     * 格位狀態
+     */
+    public enum State {
+        FREE,       // 可使用
+        LEASED,     // 使用中
+        CLEARING    // 清除中
+    }
+
+    private final ArenaSlotAllocator allocator;
+    private final int index;
+    private final int gridX;
+    private final int gridZ;
+    private final Location location;
+    private State state = State.FREE;
+    private BlockVector3 footprintMin;
+    private BlockVector3 footprintMax;
+    private ChunkTickets chunkTickets;
+    private RoomBlockTracker blockTracker;
+
+    /**
+     * 建構子
+     * @param allocator 所屬的分配器
+     * @param index 格位編號
+     * @param gridX 格位 X 座標
+     * @param gridZ 格位 Z 座標
+     * @param location 結構貼上位置
+     */
+    ArenaSlot(ArenaSlotAllocator allocator, int index, int gridX, int gridZ, Location location) {
+        this.allocator = allocator;
+        this.index = index;
+        this.gridX = gridX;
+        this.gridZ = gridZ;
+        this.location = location;
+    }
+
+    /**
+     * 設置格位內已貼上結構的範圍，歸還時只清除這個範圍
+     * @param min 最小座標
+     * @param max 最大座標
+     */
+    public void setFootprint(BlockVector3 min, BlockVector3 max) {
+        this.footprintMin = min;
+        this.footprintMax = max;
+    }
+
+    /**
+     * 清除結構範圍紀錄
+     */
+    void clearFootprint() {
+        this.footprintMin = null;
+        this.footprintMax = null;
+    }
+
+    /**
+     * 檢查格位是否有已貼上的結構
+     * @return 是否有結構
+     */
+    public boolean hasFootprint() {
+        return footprintMin != null && footprintMax != null;
+    }
+
+    /**
+     * 移除結構範圍內殘留的非玩家實體（掉落物、經驗球等）
+     */
+    public void removeEntities() {
+        if (!hasFootprint()) {
+            return;
+        }
+        BoundingBox box = new BoundingBox(
+            footprintMin.getBlockX(), footprintMin.getBlockY(), footprintMin.getBlockZ(),
+            footprintMax.getBlockX() + 1, footprintMax.getBlockY() + 1, footprintMax.getBlockZ() + 1
+        );
+        for (Entity entity : location.getWorld().getNearbyEntities(box)) {
+            if (!(entity instanceof Player)) {
+                entity.remove();
+            }
+        }
+    }
+
+    /**
+     * 將仍在結構範圍內（含上方站立空間）的玩家傳送到結構生成基準點，清除或重置結構前呼叫
+     * 格位網格從基準點偏移一個間隔開始排列，因此基準點不會落在任何格位上
+     */
+    public void evacuate() {
+        if (!hasFootprint()) {
+            return;
+        }
+        AbstractMap map = allocator.getMap();
+        Location destination = map.getStructureSpawnPoint();
+        if (destination == null || destination.getWorld() == null) {
+            destination = location.getWorld().getSpawnLocation();
+        }
+        BoundingBox box = new BoundingBox(
+            footprintMin.getBlockX(), footprintMin.getBlockY(), footprintMin.getBlockZ(),
+            footprintMax.getBlockX() + 1, footprintMax.getBlockY() + 1, footprintMax.getBlockZ() + 1
+        ).expand(1, 1, 1, 1, 3, 1);
+        for (Player player : location.getWorld().getPlayers()) {
+            if (box.contains(player.getLocation().toVector())) {
+                player.teleport(destination);
+            }
+        }
+    }
+
+    /**
+     * 載入結構範圍內的區塊並加上票證，直到格位歸還為止
+     * @param chunksPerTick 每刻同步載入的區塊數量
+     * @return 區塊載入完成時完成
+     */
+    public CompletableFuture<Void> pinChunks(int chunksPerTick) {
+        unpinChunks();
+        if (!hasFootprint()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        chunkTickets = new ChunkTickets(location.getWorld(), footprintMin, footprintMax);
+        return chunkTickets.load(chunksPerTick);
+    }
+
+    /**
+     * 移除格位的區塊票證
+     */
+    void unpinChunks() {
+        if (chunkTickets != null) {
+            chunkTickets.release();
+            chunkTickets = null;
+        }
+    }
+
+    /**
+     * 取得格位的區塊票證
+     * @return 區塊票證，沒有時為 null
+     */
+    public ChunkTickets getChunkTickets() {
+        return chunkTickets;
+    }
+
+    /**
+     * 開始追蹤結構範圍內的方塊變更
+     * @param fullResetRatio 變更數量超過結構體積的此比例時改為整個重新貼上
+     */
+    public void startTracking(double fullResetRatio) {
+        if (!hasFootprint()) {
+            return;
+        }
+        BlockVector3 size = footprintMax.subtract(footprintMin).add(1, 1, 1);
+        long volume = (long) size.getBlockX() * size.getBlockY() * size.getBlockZ();
+        int limit = (int) Math.min(Integer.MAX_VALUE, (long) (volume * fullResetRatio));
+        blockTracker = new RoomBlockTracker(footprintMin, footprintMax, limit);
+    }
+
+    /**
+     * 停止追蹤方塊變更
+     * @return 追蹤器，沒有追蹤時為 null
+     */
+    public RoomBlockTracker stopTracking() {
+        RoomBlockTracker tracker = blockTracker;
+        blockTracker = null;
+        return tracker;
+    }
+
+    /**
+     * 取得目前的方塊變更追蹤器
+     * @return 追蹤器，沒有追蹤時為 null
+     */
+    public RoomBlockTracker getBlockTracker() {
+        return blockTracker;
+    }
+
+    /**
+     * 歸還格位
+     */
+    public void release() {
+        allocator.release(this);
+    }
+
+    public ArenaSlotAllocator getAllocator() {
+        return allocator;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getGridX() {
+        return gridX;
+    }
+
+    public int getGridZ() {
+        return gridZ;
+    }
+
+    /**
+     * 取得結構貼上位置
+     * @return 貼上位置
+     */
+    public Location getLocation() {
+        return location.clone();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    public BlockVector3 getFootprintMin() {
+        return footprintMin;
+    }
+
+    public BlockVector3 getFootprintMax() {
+        return footprintMax;
+    }
+}
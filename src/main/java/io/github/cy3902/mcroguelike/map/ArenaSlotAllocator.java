@@ -0,0 +1,212 @@
+package io.github.cy3902.mcroguelike.map;
+
+import com.fastasyncworldedit.core.FaweAPI;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.block.BlockTypes;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+
+/**
+ * 競技場格位分配器
+ * 每張地圖有固定數量的格位，以結構生成間隔排列成網格，
+ * 房間開始時租用格位，結束時以 FAWE 非同步清除後再歸還，使地圖範圍不會無限擴張。
+ */
+public class ArenaSlotAllocator {
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private AbstractMap map;
+    private final int slotsX;
+    private final int slotsZ;
+    private List<ArenaSlot> slots;
+
+    /**
+     * 建立網格時的基準位置與間隔，重新載入地圖後已建立的格位仍依照原本的位置
+     */
+    private Location origin;
+    private int separation;
+
+    /**
+     * 建構子
+     * @param map 地圖
+     * @param slotsX X 方向的格位數量
+     * @param slotsZ Z 方向的格位數量
+     */
+    public ArenaSlotAllocator(AbstractMap map, int slotsX, int slotsZ) {
+        this.map = map;
+        this.slotsX = Math.max(1, slotsX);
+        this.slotsZ = Math.max(1, slotsZ);
+    }
+
+    /**
+     * 建立格位網格，地圖的世界載入後才能計算位置
+     * @return 格位列表，世界尚未載入時返回 null
+     */
+    private List<ArenaSlot> getSlots() {
+        if (slots == null) {
+            Location origin = map.getStructureSpawnPoint();
+            if (origin == null || origin.getWorld() == null) {
+                return null;
+            }
+            int separation = map.getStructureSpawnSeparation();
+            this.origin = origin.clone();
+            this.separation = separation;
+            List<ArenaSlot> grid = new ArrayList<>(slotsX * slotsZ);
+            for (int gz = 0; gz < slotsZ; gz++) {
+                for (int gx = 0; gx < slotsX; gx++) {
+                    // 第一列從出生點往 X 方向偏移一個間隔，避免覆蓋出生點
+                    Location location = origin.clone().add((gx + 1) * separation, 0, gz * separation);
+                    grid.add(new ArenaSlot(this, grid.size(), gx, gz, location));
+                }
+            }
+            slots = grid;
+        }
+        return slots;
+    }
+
+    /**
+     * 租用編號最小的空閒格位
+     * @return 格位，沒有空閒格位時返回 null
+     */
+    public ArenaSlot lease() {
+        List<ArenaSlot> grid = getSlots();
+        if (grid == null) {
+            return null;
+        }
+        for (ArenaSlot slot : grid) {
+            if (slot.getState() == ArenaSlot.State.FREE) {
+                slot.setState(ArenaSlot.State.LEASED);
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 歸還格位，格位內有結構時先將其中的玩家傳送出去，再非同步清除並標記為空閒
+     * @param slot 格位
+     */
+    public void release(ArenaSlot slot) {
+        if (slot == null || slot.getAllocator() != this || slot.getState() != ArenaSlot.State.LEASED) {
+            return;
+        }
+        if (!slot.hasFootprint()) {
+            slot.unpinChunks();
+            slot.setState(ArenaSlot.State.FREE);
+            return;
+        }
+
+        slot.stopTracking();
+        slot.setState(ArenaSlot.State.CLEARING);
+        BlockVector3 min = slot.getFootprintMin();
+        BlockVector3 max = slot.getFootprintMax();
+        World world = slot.getLocation().getWorld();
+        // 先移出玩家，清除為空氣後玩家不會掉入虛空，之後租用的房間也不會貼在玩家身上
+        slot.evacuate();
+        slot.removeEntities();
+
+        mcroguelike.getPasteScheduler().submit(world.getName(), () -> {
+            try (EditSession editSession = WorldEdit.getInstance().newEditSession(FaweAPI.getWorld(world.getName()))) {
+                editSession.setBlocks(new CuboidRegion(min, max), BlockTypes.AIR.getDefaultState());
+            }
+            return true;
+        }).thenAccept(success -> {
+            if (!success) {
+                mcroguelike.getLogger().log(Level.WARNING, "Failed to clear arena slot " + slot.getIndex() + " in map " + map.getName());
+            }
+            // 清除完成後才移除區塊票證，避免 FAWE 重新載入區塊
+            slot.unpinChunks();
+            slot.clearFootprint();
+            slot.setState(ArenaSlot.State.FREE);
+        });
+    }
+
+    /**
+     * 依照座標找出所在的格位，只需要常數時間
+     * @param x 方塊 X 座標
+     * @param z 方塊 Z 座標
+     * @return 格位，不在任何格位附近時返回 null
+     */
+    public ArenaSlot getSlotAt(int x, int z) {
+        List<ArenaSlot> grid = slots;
+        if (grid == null || separation <= 0) {
+            return null;
+        }
+        int gx = Math.floorDiv(x - origin.getBlockX() - separation + separation / 2, separation);
+        int gz = Math.floorDiv(z - origin.getBlockZ() + separation / 2, separation);
+        if (gx < 0 || gx >= slotsX || gz < 0 || gz >= slotsZ) {
+            return null;
+        }
+        return grid.get(gz * slotsX + gx);
+    }
+
+    /**
+     * 獲取使用中的格位數量
+     * @return 格位數量
+     */
+    public int getLeasedCount() {
+        List<ArenaSlot> grid = getSlots();
+        if (grid == null) {
+            return 0;
+        }
+        int count = 0;
+        for (ArenaSlot slot : grid) {
+            if (slot.getState() != ArenaSlot.State.FREE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 獲取格位總數
+     * @return 格位數量
+     */
+    public int getCapacity() {
+        return slotsX * slotsZ;
+    }
+
+    /**
+     * 檢查兩個分配器的格位網格是否相同
+     * @param other 另一個分配器
+     * @return 基準位置、間隔與格位數量都相同時返回 true
+     */
+    public boolean hasSameLayout(ArenaSlotAllocator other) {
+        return slotsX == other.slotsX && slotsZ == other.slotsZ
+            && getLayoutSeparation() == other.getLayoutSeparation()
+            && Objects.equals(getLayoutOrigin(), other.getLayoutOrigin());
+    }
+
+    /**
+     * 已建立網格時使用建立時的基準位置，否則使用地圖目前的設定
+     */
+    private Location getLayoutOrigin() {
+        return slots != null ? origin : map.getStructureSpawnPoint();
+    }
+
+    private int getLayoutSeparation() {
+        return slots != null ? separation : map.getStructureSpawnSeparation();
+    }
+
+    public AbstractMap getMap() {
+        return map;
+    }
+
+    /**
+     * 重新載入地圖後將分配器移交給新的地圖物件
+     * @param map 新的地圖
+     */
+    public void moveTo(AbstractMap map) {
+        this.map = map;
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.cy3902.mcroguelike.map;
+
+import com.sk89q.worldedit.math.BlockVector3;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * 區塊票證
+ * 在貼上結構前載入目標範圍內的區塊並加上插件區塊票證，
+ * 使區塊在房間進行期間保持載入，房間結束時一併移除。
+ * 伺服器支援非同步區塊載入（Paper）時使用非同步載入，否則每刻只同步載入固定數量的區塊。
+ */
+public class ChunkTickets {
+    private static final Method GET_CHUNK_AT_ASYNC = findAsyncChunkMethod();
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final World world;
+    private final List<int[]> chunks = new ArrayList<>();
+    private final List<int[]> pinned = new ArrayList<>();
+    private boolean released;
+
+    /**
+     * 建構子
+     * @param world 世界
+     * @param min 範圍最小座標
+     * @param max 範圍最大座標
+     */
+    public ChunkTickets(World world, BlockVector3 min, BlockVector3 max) {
+        this.world = world;
+        for (int x = min.getBlockX() >> 4; x <= max.getBlockX() >> 4; x++) {
+            for (int z = min.getBlockZ() >> 4; z <= max.getBlockZ() >> 4; z++) {
+                chunks.add(new int[] { x, z });
+            }
+        }
+    }
+
+    private static Method findAsyncChunkMethod() {
+        try {
+            return World.class.getMethod("getChunkAtAsync", int.class, int.class, boolean.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 載入所有區塊並加上票證，必須在伺服器主執行緒呼叫
+     * @param chunksPerTick 不支援非同步載入時每刻同步載入的區塊數量
+     * @return 全部區塊載入完成時完成，結果在伺服器主執行緒回報
+     */
+    public CompletableFuture<Void> load(int chunksPerTick) {
+        if (GET_CHUNK_AT_ASYNC != null) {
+            try {
+                return loadAsync();
+            } catch (ReflectiveOperationException e) {
+                mcroguelike.getLogger().log(Level.WARNING, "Async chunk loading unavailable, falling back to tick budget", e);
+            }
+        }
+        return loadPerTick(Math.max(1, chunksPerTick));
+    }
+
+    private CompletableFuture<Void> loadAsync() throws ReflectiveOperationException {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(chunks.size());
+        for (int[] chunk : chunks) {
+            CompletableFuture<?> future = (CompletableFuture<?>) GET_CHUNK_AT_ASYNC.invoke(world, chunk[0], chunk[1], true);
+            futures.add(future.thenAcceptAsync(loaded -> pin(chunk), mcroguelike.getSchemLoader().getMainThreadExecutor()));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> loadPerTick(int chunksPerTick) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        new BukkitRunnable() {
+            private int next;
+
+            @Override
+            public void run() {
+                int end = Math.min(chunks.size(), next + chunksPerTick);
+                for (; next < end && !released; next++) {
+                    pin(chunks.get(next));
+                }
+                if (next >= chunks.size() || released) {
+                    this.cancel();
+                    result.complete(null);
+                }
+            }
+        }.runTaskTimer(mcroguelike, 0L, 1L);
+        return result;
+    }
+
+    /**
+     * 加上單一區塊的票證，已經釋放時略過
+     */
+    private void pin(int[] chunk) {
+        if (released) {
+            return;
+        }
+        world.addPluginChunkTicket(chunk[0], chunk[1], mcroguelike);
+        pinned.add(chunk);
+    }
+
+    /**
+     * 移除所有已加上的票證，之後完成載入的區塊不會再加上票證
+     */
+    public void release() {
+        if (!mcroguelike.isEnabled()) {
+            // 停用插件時伺服器會移除插件的所有票證
+            released = true;
+            pinned.clear();
+            return;
+        }
+        if (!Bukkit.isPrimaryThread()) {
+            Bukkit.getScheduler().runTask(mcroguelike, this::release);
+            return;
+        }
+        released = true;
+        for (int[] chunk : pinned) {
+            world.removePluginChunkTicket(chunk[0], chunk[1], mcroguelike);
+        }
+        pinned.clear();
+    }
+
+    /**
+     * 獲取範圍內的區塊數量
+     * @return 區塊數量
+     */
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * 獲取已加上票證的區塊數量
+     * @return 區塊數量
+     */
+    public int getPinnedCount() {
+        return pinned.size();
+    }
+}
@@ -9,8 +9,8 @@ import org.bukkit.World;
 public class Map extends AbstractMap {
     public Map(String name, String structureSpawnPoint, int structureSpawnSeparation, boolean mobGriefing, boolean doDaylightCycle, 
                boolean doWeatherCycle, boolean keepInventory, boolean doMobSpawning, 
-               boolean pvp, String weather, boolean allowExplosions) {
-        super(name, structureSpawnPoint, structureSpawnSeparation, mobGriefing, doDaylightCycle, doWeatherCycle, keepInventory, doMobSpawning, pvp, weather, allowExplosions);
+               boolean pvp, String weather, boolean allowExplosions, int arenaSlotsX, int arenaSlotsZ) {
+        super(name, structureSpawnPoint, structureSpawnSeparation, mobGriefing, doDaylightCycle, doWeatherCycle, keepInventory, doMobSpawning, pvp, weather, allowExplosions, arenaSlotsX, arenaSlotsZ);
     }
 
     @Override
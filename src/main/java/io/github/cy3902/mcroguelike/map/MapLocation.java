@@ -7,6 +7,7 @@ import org.bukkit.Location;
 import org.bukkit.World;
 import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
 
 /**
  * MapLocation 類別負責管理地圖的位置信息
@@ -16,147 +17,64 @@ public class MapLocation {
     private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
     private final AbstractMap map;
     private Location location;
+    private boolean changed;
     private static final String TABLE_NAME = "mcroguelike_map_location";
     /**
-     * 建構子
+     * 建構子，先使用默認位置，數據庫中的位置在背景讀取
      * @param map 關聯的地圖對象
      */
     public MapLocation(AbstractMap map) {
         this.map = map;
-        this.location = loadLocation();
+        this.location = map.getStructureSpawnPoint();
+        loadFromDatabase();
     }
 
     /**
-     * 載入位置信息
-     * 優先從數據庫讀取，如果不存在則使用默認位置
-     * @return 載入的位置信息
+     * 在背景從數據庫載入位置信息，讀取到時在主執行緒套用；
+     * 讀取期間已經設置了新的位置時不覆蓋
      */
-    private Location loadLocation() {
-        Location dbLocation = loadFromDatabase();
-        if (dbLocation != null) {
-            return dbLocation;
-        }
-        return map.getStructureSpawnPoint();
-    }
-
-    /**
-     * 從數據庫載入位置信息
-     * @return 數據庫中的位置信息，如果不存在則返回null
-     */
-    private Location loadFromDatabase() {
-        if (!ensureDatabaseConnection()) {
-            return null;
-        }
-
-        String locationString = queryLocationFromDatabase();
-        if (locationString == null) {
-            return null;
-        }
-        return parseLocationString(locationString, map.getName());
-    }
-
-    /**
-     * 確保數據庫連接有效
-     * @return 連接是否有效
-     */
-    private boolean ensureDatabaseConnection() {
-        if (!mcroguelike.getSql().isConnectionValid()) {
-            mcroguelike.getSql().connect();
+    private void loadFromDatabase() {
+        World world = Bukkit.getWorld(map.getName());
+        if (world == null) {
+            return;
         }
-        return mcroguelike.getSql().isConnectionValid();
-    }
-
-    /**
-     * 從數據庫查詢位置信息
-     * @return 位置信息字符串
-     */
-    private String queryLocationFromDatabase() {
-        return mcroguelike.getSql().select(
+        mcroguelike.getSql().queryFirstAsync(
             "SELECT X, Y, Z FROM " + TABLE_NAME + " WHERE map = ?",
-            new String[]{map.getName()}
-        );
-    }
-
-    /**
-     * 解析位置字符串為Location對象
-     * @param locationString 位置字符串
-     * @return Location對象，解析失敗則返回null
-     */
-    private Location parseLocationString(String locationString, String worldString) {
-        String[] parts = locationString.split(",");
-        if (parts.length < 2) {
-            return null;
-        }
-
-        try {
-            World world = Bukkit.getWorld(worldString);
-            if (world == null) {
-                return null;
+            new Object[]{map.getName()},
+            rs -> new Location(world, rs.getDouble("X"), rs.getDouble("Y"), rs.getDouble("Z"), 0, 0)
+        ).thenAcceptAsync(dbLocation -> {
+            if (dbLocation != null && !changed) {
+                this.location = dbLocation;
             }
-
-            double x = Double.parseDouble(parts[0].trim());
-            double y = Double.parseDouble(parts[1].trim());
-            double z = Double.parseDouble(parts[2].trim());
-
-            return new Location(world, x, y, z, 0, 0);
-        } catch (NumberFormatException e) {
-            return null;
-        }
+        }, mcroguelike.getSchemLoader().getMainThreadExecutor());
     }
 
     /**
-     * 保存位置信息到數據庫
+     * 在背景以一個插入或更新語句保存位置信息到數據庫
      */
     public void saveToDatabase() {
-        if (!ensureDatabaseConnection() || location == null) {
+        if (location == null) {
             return;
         }
-
-
-        if (isLocationExistsInDatabase()) {
-            updateLocationInDatabase(location.getBlockX(), location.getBlockY(), location.getBlockZ());
-        } else {
-            insertLocationToDatabase(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        if (!mcroguelike.getSql().getHealth().isAvailable()) {
+            mcroguelike.info("Database is unavailable, location of map " + map.getName() + " was not saved", Level.WARNING);
+            return;
         }
-    }
 
-    /**
-     * 檢查位置是否已存在於數據庫
-     * @return 是否存在
-     */
-    private boolean isLocationExistsInDatabase() {
-        return queryLocationFromDatabase() != null;
-    }
-
-    /**
-     * 更新數據庫中的位置信息
-     * @param locationString 位置字符串
-     */
-    private void updateLocationInDatabase(int locationX, int locationY, int locationZ) {
-        mcroguelike.getSql().update(
-            "UPDATE " + TABLE_NAME + " SET X = ?, Y = ?, Z = ? WHERE map = ?",
-            new String[]{String.valueOf(locationX), String.valueOf(locationY), String.valueOf(locationZ), map.getName()}
-        );
-    }
-
-    /**
-     * 插入新的位置信息到數據庫
-     * @param locationString 位置字符串
-     */
-    private void insertLocationToDatabase(int locationX, int locationY, int locationZ) {
-        mcroguelike.getSql().insert(
-            "INSERT INTO " + TABLE_NAME + " (map, X, Y, Z) VALUES (?, ?, ?, ?)",
-            new String[]{map.getName(), String.valueOf(locationX), String.valueOf(locationY), String.valueOf(locationZ)}
+        AbstractSQL sql = mcroguelike.getSql();
+        sql.executeAsync(
+            sql.upsert(TABLE_NAME, new String[]{"map", "X", "Y", "Z"}, new String[]{"map"}),
+            new Object[]{map.getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ()}
         );
     }
 
-
     /**
      * 設置新的位置
      * @param location 新的位置
      */
     public void setLocation(Location location) {
         this.location = location;
+        this.changed = true;
         saveToDatabase();
     }
 
@@ -0,0 +1,145 @@
+package io.github.cy3902.mcroguelike.map;
+
+import com.fastasyncworldedit.core.FaweAPI;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockTypes;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 房間方塊變更追蹤器
+ * 記錄房間進行期間結構範圍內被改變的方塊位置，房間結束時只從快取的 Clipboard 還原這些位置。
+ * 變更數量超過上限時不再記錄，改為整個結構重新貼上。
+ */
+public class RoomBlockTracker {
+    private static final int BITS = 21;
+    private static final long MASK = (1L << BITS) - 1;
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final BlockVector3 min;
+    private final BlockVector3 max;
+    private final int limit;
+    private final Set<Long> changed = new HashSet<>();
+    private boolean overflow;
+
+    /**
+     * 建構子
+     * @param min 追蹤範圍最小座標
+     * @param max 追蹤範圍最大座標
+     * @param limit 記錄的變更上限
+     */
+    public RoomBlockTracker(BlockVector3 min, BlockVector3 max, int limit) {
+        this.min = min;
+        this.max = max;
+        this.limit = Math.max(0, limit);
+    }
+
+    /**
+     * 檢查座標是否在追蹤範圍內
+     * @param x X 座標
+     * @param y Y 座標
+     * @param z Z 座標
+     * @return 是否在範圍內
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= min.getBlockX() && x <= max.getBlockX()
+            && y >= min.getBlockY() && y <= max.getBlockY()
+            && z >= min.getBlockZ() && z <= max.getBlockZ();
+    }
+
+    /**
+     * 記錄方塊變更，範圍外的座標會被忽略
+     * @param x X 座標
+     * @param y Y 座標
+     * @param z Z 座標
+     */
+    public void mark(int x, int y, int z) {
+        if (overflow || !contains(x, y, z)) {
+            return;
+        }
+        long key = ((long) (x - min.getBlockX()) << (BITS * 2))
+            | ((long) (y - min.getBlockY()) << BITS)
+            | (z - min.getBlockZ());
+        if (changed.add(key) && changed.size() > limit) {
+            overflow = true;
+            changed.clear();
+        }
+    }
+
+    /**
+     * 檢查是否需要整個結構重新貼上
+     * @return 變更是否超過上限
+     */
+    public boolean needsFullReset() {
+        return overflow;
+    }
+
+    /**
+     * 獲取已記錄的變更數量
+     * @return 變更數量
+     */
+    public int getChangedCount() {
+        return changed.size();
+    }
+
+    /**
+     * 從 Clipboard 還原所有記錄的位置，每批方塊使用一個 EditSession 並交由貼上排程器執行
+     * @param world 世界名稱
+     * @param clipboard 結構的 Clipboard
+     * @param pasteTarget 結構貼上時的目標位置
+     * @param batchSize 每批還原的方塊數量
+     * @return 全部還原成功時為 true
+     */
+    public CompletableFuture<Boolean> restore(String world, Clipboard clipboard, BlockVector3 pasteTarget, int batchSize) {
+        List<CompletableFuture<Boolean>> batches = new ArrayList<>();
+        List<BlockVector3> batch = new ArrayList<>();
+        for (long key : changed) {
+            batch.add(BlockVector3.at(
+                min.getBlockX() + (int) ((key >>> (BITS * 2)) & MASK),
+                min.getBlockY() + (int) ((key >>> BITS) & MASK),
+                min.getBlockZ() + (int) (key & MASK)
+            ));
+            if (batch.size() >= Math.max(1, batchSize)) {
+                batches.add(restoreBatch(world, clipboard, pasteTarget, batch));
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(restoreBatch(world, clipboard, pasteTarget, batch));
+        }
+        changed.clear();
+
+        CompletableFuture<Boolean> result = CompletableFuture.completedFuture(true);
+        for (CompletableFuture<Boolean> future : batches) {
+            result = result.thenCombine(future, (a, b) -> a && b);
+        }
+        return result;
+    }
+
+    private CompletableFuture<Boolean> restoreBatch(String world, Clipboard clipboard, BlockVector3 pasteTarget, List<BlockVector3> positions) {
+        // 方塊 p 貼在 pasteTarget + (p - origin)，反推回 Clipboard 座標
+        BlockVector3 offset = clipboard.getOrigin().subtract(pasteTarget);
+        return mcroguelike.getPasteScheduler().submit(world, () -> {
+            try (EditSession editSession = WorldEdit.getInstance().newEditSession(FaweAPI.getWorld(world))) {
+                for (BlockVector3 position : positions) {
+                    BlockVector3 source = position.add(offset);
+                    if (clipboard.getRegion().contains(source)) {
+                        editSession.setBlock(position, clipboard.getFullBlock(source));
+                    } else {
+                        editSession.setBlock(position, BlockTypes.AIR.getDefaultState());
+                    }
+                }
+            }
+            return true;
+        });
+    }
+}
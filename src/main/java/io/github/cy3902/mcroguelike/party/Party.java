@@ -6,6 +6,7 @@ import org.bukkit.entity.Player;
 import io.github.cy3902.mcroguelike.MCRogueLike;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
@@ -41,6 +42,23 @@ public class Party {
         this(leader, null);
     }
 
+    /**
+     * 構造函數，用於還原資料庫中已存在的隊伍，不會寫入資料庫
+     * @param partyID 隊伍 ID
+     * @param leader 隊長 UUID，資料中沒有隊長時以第一位成員代替
+     * @param members 所有成員 UUID
+     * @param pathID 路徑 ID，沒有路徑時為 null
+     */
+    public Party(UUID partyID, UUID leader, Collection<UUID> members, String pathID) {
+        this.partyID = partyID;
+        this.members = new HashSet<>(members);
+        if (leader == null && !members.isEmpty()) {
+            leader = members.iterator().next();
+        }
+        this.leader = leader;
+        this.pathID = pathID;
+    }
+
     /**
      * 獲取隊長 Player 實體
      */
@@ -53,11 +71,13 @@ public class Party {
      * @param player 隊長 Player 實體
      */
     public void setLeader(Player player) {
+        UUID previous = leader;
         this.leader = player.getUniqueId();
-        mcRogueLike.getSql().update(
-            "UPDATE `mcroguelike_party_member` SET `is_leader` = ? WHERE `party_uuid` = ? AND `member_uuid` = ?",
-            new String[]{"true", partyID.toString(), leader.toString()}
-        );
+        PartyRepository repository = mcRogueLike.getPartyRepository();
+        repository.saveMember(partyID, leader, true);
+        if (previous != null && !previous.equals(leader) && members.contains(previous)) {
+            repository.saveMember(partyID, previous, false);
+        }
     }
 
     /**
@@ -91,27 +111,12 @@ public class Party {
     }
 
     /**
-     * 更新資料庫中的隊伍成員資訊
+     * 記錄隊伍成員資訊，立即更新隊伍索引，由延遲寫入合併後寫入資料庫
      * @param player 玩家實體
      * @param uuid 玩家 UUID
      */
     private void updatePartyMemberInDatabase(Player player, UUID uuid) {
-        String existingRecord = mcRogueLike.getSql().select(
-            "SELECT * FROM `mcroguelike_party_member` WHERE `party_uuid` = ? AND `member_uuid` = ?",
-            new String[]{partyID.toString(), uuid.toString()}
-        );
-        
-        if (existingRecord == null) {
-            mcRogueLike.getSql().insert(
-                "INSERT INTO `mcroguelike_party_member` (`party_uuid`, `member_uuid`, `is_leader`) VALUES (?, ?, ?)",
-                new String[]{partyID.toString(), uuid.toString(), isLeader(player) ? "true" : "false"}
-            );
-        } else {
-            mcRogueLike.getSql().update(
-                "UPDATE `mcroguelike_party_member` SET `is_leader` = ? WHERE `party_uuid` = ? AND `member_uuid` = ?",
-                new String[]{isLeader(player) ? "true" : "false", partyID.toString(), uuid.toString()}
-            );
-        }
+        mcRogueLike.getPartyRepository().saveMember(partyID, uuid, isLeader(player));
     }
 
     /**
@@ -155,10 +160,7 @@ public class Party {
      * @param uuid 玩家 UUID
      */
     private void removeMemberFromDatabase(UUID uuid) {
-        mcRogueLike.getSql().delete(
-            "DELETE FROM `mcroguelike_party_member` WHERE `party_uuid` = ? AND `member_uuid` = ?",
-            new String[]{partyID.toString(), uuid.toString()}
-        );
+        mcRogueLike.getPartyRepository().removeMember(partyID, uuid);
         mcRogueLike.removePlayerPartyRegister(uuid);
     }
 
@@ -247,10 +249,7 @@ public class Party {
         } else {
             members.remove(player.getUniqueId());
         }
-        mcRogueLike.getSql().delete(
-            "DELETE FROM `mcroguelike_party_member` WHERE `party_uuid` = ? AND `member_uuid` = ?",
-            new String[]{partyID.toString(), player.getUniqueId().toString()}
-        );
+        mcRogueLike.getPartyRepository().removeMember(partyID, player.getUniqueId());
         mcRogueLike.removePlayerPartyRegister(player.getUniqueId());
         return true;
     }
@@ -268,4 +267,21 @@ public class Party {
     public UUID getPartyID() {
         return partyID;
     }
+
+    /**
+     * 獲取隊伍的路徑
+     * @return 路徑 ID，沒有路徑或尚未讀取時為 null
+     */
+    public String getPathID() {
+        return pathID;
+    }
+
+    /**
+     * 記錄隊伍的路徑，資料庫由呼叫端寫入
+     * @param pathID 路徑 ID，刪除時為 null
+     */
+    public void setPathID(String pathID) {
+        this.pathID = pathID;
+        mcRogueLike.getPartyRepository().setPath(partyID, pathID);
+    }
 }
\ No newline at end of file
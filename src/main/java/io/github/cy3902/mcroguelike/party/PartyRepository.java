@@ -0,0 +1,425 @@
+package io.github.cy3902.mcroguelike.party;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
+
+import org.bukkit.Bukkit;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * 隊伍資料的記憶體索引
+ * 啟動時以兩個查詢串流讀入所有隊伍成員與路徑，之後所有成員查詢都由記憶體回答，
+ * 變更立即更新索引並交給延遲寫入。
+ * 有在線成員的隊伍常駐記憶體，其餘隊伍以最近最少使用的順序整隊淘汰，淘汰後的查詢才會讀取資料庫。
+ * 只在主執行緒使用。
+ */
+public class PartyRepository {
+    private static final String MEMBER_TABLE = "mcroguelike_party_member";
+    private static final String PATH_TABLE = "mcroguelike_party_path";
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final AbstractSQL sql;
+    private final PartyWriteBehind writeBehind;
+    private final int maxOfflineParties;
+
+    /**
+     * 成員所屬的隊伍，包含所有在記憶體中的隊伍成員
+     */
+    private final Map<UUID, UUID> memberParties = new HashMap<>();
+    private final Map<UUID, PartyRecord> onlineParties = new HashMap<>();
+    private final Map<UUID, PartyRecord> offlineParties;
+
+    /**
+     * 查詢過但沒有隊伍的玩家，只在索引不完整時使用
+     */
+    private final Map<UUID, Boolean> noParty;
+
+    /**
+     * 索引是否包含資料庫的所有隊伍，沒有淘汰過時未命中即表示沒有隊伍
+     */
+    private boolean complete;
+    private long hits;
+    private long misses;
+
+    /**
+     * 單一隊伍的成員、隊長與路徑
+     */
+    public static final class PartyRecord {
+        private final UUID partyID;
+        private UUID leader;
+        private final Set<UUID> members = new LinkedHashSet<>();
+        private String pathID;
+
+        private PartyRecord(UUID partyID) {
+            this.partyID = partyID;
+        }
+
+        public UUID getPartyID() {
+            return partyID;
+        }
+
+        /**
+         * 獲取隊長
+         * @return 隊長 UUID，資料中沒有隊長時為 null
+         */
+        public UUID getLeader() {
+            return leader;
+        }
+
+        public List<UUID> getMembers() {
+            return new ArrayList<>(members);
+        }
+
+        /**
+         * 獲取隊伍的路徑
+         * @return 路徑 ID，沒有路徑時為 null
+         */
+        public String getPathID() {
+            return pathID;
+        }
+
+        private boolean hasOnlineMember() {
+            for (UUID member : members) {
+                if (Bukkit.getPlayer(member) != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 建構子
+     * @param sql 資料庫
+     * @param writeBehind 隊伍成員的延遲寫入
+     * @param maxOfflineParties 保留的離線隊伍上限
+     */
+    public PartyRepository(AbstractSQL sql, PartyWriteBehind writeBehind, int maxOfflineParties) {
+        this.sql = sql;
+        this.writeBehind = writeBehind;
+        this.maxOfflineParties = Math.max(0, maxOfflineParties);
+        this.offlineParties = new LinkedHashMap<UUID, PartyRecord>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, PartyRecord> eldest) {
+                if (size() <= PartyRepository.this.maxOfflineParties) {
+                    return false;
+                }
+                for (UUID member : eldest.getValue().members) {
+                    memberParties.remove(member, eldest.getKey());
+                }
+                complete = false;
+                return true;
+            }
+        };
+        this.noParty = new LinkedHashMap<UUID, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                return size() > PartyRepository.this.maxOfflineParties;
+            }
+        };
+    }
+
+    /**
+     * 以兩個查詢串流讀入所有隊伍成員與路徑，超過上限的離線隊伍會被淘汰
+     */
+    public void load() {
+        memberParties.clear();
+        onlineParties.clear();
+        offlineParties.clear();
+        noParty.clear();
+        complete = true;
+
+        Map<UUID, PartyRecord> records = new LinkedHashMap<>();
+        try {
+            sql.withReadConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT party_uuid, member_uuid, is_leader FROM " + MEMBER_TABLE)) {
+                    stmt.setFetchSize(1000);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            UUID partyID = sql.getUuid(rs, "party_uuid");
+                            addRow(records.computeIfAbsent(partyID, PartyRecord::new), sql.getUuid(rs, "member_uuid"), readLeader(rs));
+                        }
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT party_uuid, path FROM " + PATH_TABLE)) {
+                    stmt.setFetchSize(1000);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            PartyRecord record = records.get(sql.getUuid(rs, "party_uuid"));
+                            if (record != null) {
+                                record.pathID = rs.getString("path");
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            // 無法讀入時改為逐一查詢
+            complete = false;
+            mcroguelike.getLogger().log(Level.WARNING, "Failed to load parties, falling back to per-player lookups", e);
+            return;
+        }
+
+        for (PartyRecord record : records.values()) {
+            place(record);
+        }
+        mcroguelike.info("Loaded " + records.size() + " parties with " + memberParties.size() + " members"
+            + (complete ? "" : ", keeping " + offlineParties.size() + " offline parties"), Level.INFO);
+    }
+
+    /**
+     * 為有在線成員且尚未註冊的隊伍建立 Party，不會寫入資料庫
+     * @return 還原的隊伍數量
+     */
+    public int restoreOnlineParties() {
+        int restored = 0;
+        for (PartyRecord record : new ArrayList<>(onlineParties.values())) {
+            if (mcroguelike.getPartyRegister().containsKey(record.getPartyID())) {
+                continue;
+            }
+            register(record);
+            restored++;
+        }
+        return restored;
+    }
+
+    /**
+     * 註冊記錄對應的 Party，已註冊時只註冊在線的成員
+     * @param record 隊伍資料
+     * @return 隊伍
+     */
+    public Party register(PartyRecord record) {
+        Party party = mcroguelike.getPartyRegister().get(record.getPartyID());
+        if (party == null) {
+            party = new Party(record.getPartyID(), record.getLeader(), record.getMembers(), record.getPathID());
+            mcroguelike.addPartyRegister(party.getPartyID(), party);
+        }
+        for (UUID member : record.members) {
+            if (Bukkit.getPlayer(member) != null) {
+                mcroguelike.addPlayerPartyRegister(member, party);
+            }
+        }
+        return party;
+    }
+
+    /**
+     * 玩家上線時取得所屬的隊伍並常駐記憶體，
+     * 記憶體中沒有資料且索引不完整時在背景以一個查詢讀取整個隊伍，結果在主執行緒返回
+     * @param memberID 玩家 UUID
+     * @return 所屬的隊伍，沒有隊伍時為 null
+     */
+    public CompletableFuture<PartyRecord> loadOnline(UUID memberID) {
+        PartyRecord record = find(memberID);
+        if (record != null || complete || noParty.containsKey(memberID)) {
+            hits++;
+            if (record != null) {
+                place(record);
+            }
+            return CompletableFuture.completedFuture(record);
+        }
+
+        misses++;
+        return sql.queryAsync(
+            "SELECT m.party_uuid, m.member_uuid, m.is_leader, p.path FROM " + MEMBER_TABLE + " m "
+                + "JOIN " + MEMBER_TABLE + " self ON self.party_uuid = m.party_uuid "
+                + "LEFT JOIN " + PATH_TABLE + " p ON p.party_uuid = m.party_uuid "
+                + "WHERE self.member_uuid = ?",
+            new Object[]{memberID},
+            rs -> new Object[]{sql.getUuid(rs, "party_uuid"), sql.getUuid(rs, "member_uuid"), readLeader(rs), rs.getString("path")}
+        ).thenApplyAsync(rows -> {
+            // 查詢期間可能已經有新的變更，以記憶體中的資料為準
+            PartyRecord current = find(memberID);
+            if (current != null) {
+                return current;
+            }
+            if (rows.isEmpty()) {
+                noParty.put(memberID, Boolean.TRUE);
+                return null;
+            }
+            PartyRecord loaded = new PartyRecord((UUID) rows.get(0)[0]);
+            for (Object[] row : rows) {
+                addRow(loaded, (UUID) row[1], (Boolean) row[2]);
+                loaded.pathID = (String) row[3];
+            }
+            place(loaded);
+            return loaded;
+        }, mcroguelike.getSchemLoader().getMainThreadExecutor());
+    }
+
+    /**
+     * 玩家離線時，隊伍沒有其他在線成員則移到可淘汰的區域
+     * @param memberID 玩家 UUID
+     */
+    public void markOffline(UUID memberID) {
+        UUID partyID = memberParties.get(memberID);
+        PartyRecord record = partyID != null ? onlineParties.get(partyID) : null;
+        if (record == null) {
+            return;
+        }
+        for (UUID member : record.members) {
+            if (!member.equals(memberID) && Bukkit.getPlayer(member) != null) {
+                return;
+            }
+        }
+        onlineParties.remove(partyID);
+        offlineParties.put(partyID, record);
+    }
+
+    /**
+     * 只從記憶體取得玩家所屬的隊伍
+     * @param memberID 玩家 UUID
+     * @return 所屬的隊伍，沒有隊伍或不在記憶體中時為 null
+     */
+    public PartyRecord getCached(UUID memberID) {
+        return find(memberID);
+    }
+
+    /**
+     * 記錄成員加入或隊長狀態變更
+     * @param partyID 隊伍 ID
+     * @param memberID 成員 UUID
+     * @param leader 是否為隊長
+     */
+    public void saveMember(UUID partyID, UUID memberID, boolean leader) {
+        UUID previous = memberParties.get(memberID);
+        if (previous != null && !previous.equals(partyID)) {
+            PartyRecord old = get(previous);
+            if (old != null) {
+                removeRow(old, memberID);
+            }
+        }
+        PartyRecord record = get(partyID);
+        if (record == null) {
+            record = new PartyRecord(partyID);
+        }
+        addRow(record, memberID, leader);
+        if (!leader && memberID.equals(record.leader)) {
+            record.leader = null;
+        }
+        memberParties.put(memberID, partyID);
+        noParty.remove(memberID);
+        place(record);
+        writeBehind.saveMember(partyID, memberID, leader);
+    }
+
+    /**
+     * 記錄成員離開隊伍
+     * @param partyID 隊伍 ID
+     * @param memberID 成員 UUID
+     */
+    public void removeMember(UUID partyID, UUID memberID) {
+        PartyRecord record = get(partyID);
+        if (record != null) {
+            removeRow(record, memberID);
+        }
+        if (memberParties.remove(memberID, partyID) && !complete) {
+            noParty.put(memberID, Boolean.TRUE);
+        }
+        writeBehind.removeMember(partyID, memberID);
+    }
+
+    /**
+     * 記錄隊伍路徑的變更，資料庫由呼叫端寫入
+     * @param partyID 隊伍 ID
+     * @param pathID 路徑 ID，刪除時為 null
+     */
+    public void setPath(UUID partyID, String pathID) {
+        PartyRecord record = get(partyID);
+        if (record != null) {
+            record.pathID = pathID;
+        }
+    }
+
+    /**
+     * 檢查隊伍的路徑是否已由記憶體中的資料決定，隊伍資料讀入時一併讀取路徑
+     * @param partyID 隊伍 ID
+     * @return 記憶體中有此隊伍或已讀入所有隊伍時返回 true
+     */
+    public boolean isPathKnown(UUID partyID) {
+        return complete || get(partyID) != null;
+    }
+
+    private PartyRecord find(UUID memberID) {
+        UUID partyID = memberParties.get(memberID);
+        return partyID != null ? get(partyID) : null;
+    }
+
+    private PartyRecord get(UUID partyID) {
+        PartyRecord record = onlineParties.get(partyID);
+        return record != null ? record : offlineParties.get(partyID);
+    }
+
+    /**
+     * 依照是否有在線成員放入常駐或可淘汰的區域，並更新成員索引
+     */
+    private void place(PartyRecord record) {
+        for (UUID member : record.members) {
+            memberParties.put(member, record.partyID);
+        }
+        if (record.hasOnlineMember()) {
+            offlineParties.remove(record.partyID);
+            onlineParties.put(record.partyID, record);
+        } else {
+            onlineParties.remove(record.partyID);
+            offlineParties.put(record.partyID, record);
+        }
+    }
+
+    private static void addRow(PartyRecord record, UUID memberID, boolean leader) {
+        record.members.add(memberID);
+        if (leader) {
+            record.leader = memberID;
+        }
+    }
+
+    private void removeRow(PartyRecord record, UUID memberID) {
+        record.members.remove(memberID);
+        if (memberID.equals(record.leader)) {
+            record.leader = null;
+        }
+        if (record.members.isEmpty()) {
+            onlineParties.remove(record.partyID);
+            offlineParties.remove(record.partyID);
+        }
+    }
+
+    /**
+     * is_leader 在 SQLite 以文字保存，在 MySQL 以數字保存
+     */
+    private static boolean readLeader(ResultSet rs) throws SQLException {
+        String value = rs.getString("is_leader");
+        return "true".equalsIgnoreCase(value) || "1".equals(value);
+    }
+
+    /**
+     * 獲取記憶體中的隊伍數量
+     * @return 隊伍數量
+     */
+    public int getSize() {
+        return onlineParties.size() + offlineParties.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
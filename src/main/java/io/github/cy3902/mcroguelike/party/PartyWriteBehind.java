@@ -0,0 +1,179 @@
+package io.github.cy3902.mcroguelike.party;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
+import io.github.cy3902.mcroguelike.sql.DatabaseUnavailableException;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * 隊伍成員的延遲寫入
+ * 在記憶體中合併同一成員的加入、隊長變更與離開，只保留最後的狀態，
+ * 定期在單一交易中以批次 upsert 與 delete 寫入資料庫。
+ */
+public class PartyWriteBehind {
+    private static final String TABLE_NAME = "mcroguelike_party_member";
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final AbstractSQL sql;
+    private Map<Key, Boolean> pending = new LinkedHashMap<>();
+    private BukkitTask flushTask;
+
+    /**
+     * 隊伍與成員組成的鍵
+     */
+    private static final class Key {
+        private final UUID partyID;
+        private final UUID memberID;
+
+        private Key(UUID partyID, UUID memberID) {
+            this.partyID = partyID;
+            this.memberID = memberID;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return partyID.equals(key.partyID) && memberID.equals(key.memberID);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(partyID, memberID);
+        }
+    }
+
+    /**
+     * 建構子
+     * @param sql 資料庫
+     */
+    public PartyWriteBehind(AbstractSQL sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * 開始定期寫入
+     * @param intervalTicks 寫入間隔（tick）
+     */
+    public void start(int intervalTicks) {
+        long interval = Math.max(1, intervalTicks);
+        flushTask = Bukkit.getScheduler().runTaskTimer(mcroguelike, this::flush, interval, interval);
+    }
+
+    /**
+     * 停止定期寫入並送出剩餘的變更
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (!sql.getHealth().isAvailable() && getPendingCount() > 0) {
+            sql.getLogger().log(Level.WARNING, "Database is unavailable, " + getPendingCount() + " party member changes were not saved");
+            return;
+        }
+        flush();
+    }
+
+    /**
+     * 記錄成員加入或隊長狀態變更
+     * @param partyID 隊伍 ID
+     * @param memberID 成員 UUID
+     * @param leader 是否為隊長
+     */
+    public synchronized void saveMember(UUID partyID, UUID memberID, boolean leader) {
+        pending.put(new Key(partyID, memberID), leader);
+    }
+
+    /**
+     * 記錄成員離開隊伍
+     * @param partyID 隊伍 ID
+     * @param memberID 成員 UUID
+     */
+    public synchronized void removeMember(UUID partyID, UUID memberID) {
+        // null 表示刪除
+        pending.put(new Key(partyID, memberID), null);
+    }
+
+    /**
+     * 獲取尚未寫入的變更數量
+     * @return 變更數量
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 將目前合併的變更排入資料庫寫入佇列，資料庫無法使用時保留在記憶體中等待重新連線
+     * @return 寫入完成時的 Future
+     */
+    public CompletableFuture<Void> flush() {
+        Map<Key, Boolean> batch;
+        synchronized (this) {
+            if (pending.isEmpty() || !sql.getHealth().isAvailable()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        return sql.runAsync(() -> write(batch));
+    }
+
+    private void write(Map<Key, Boolean> batch) {
+        String upsert = sql.upsert(TABLE_NAME, new String[]{"party_uuid", "member_uuid", "is_leader"}, new String[]{"party_uuid", "member_uuid"});
+        String delete = "DELETE FROM `" + TABLE_NAME + "` WHERE `party_uuid` = ? AND `member_uuid` = ?";
+        try {
+            sql.inTransaction(conn -> {
+                try (PreparedStatement upsertStmt = conn.prepareStatement(upsert);
+                     PreparedStatement deleteStmt = conn.prepareStatement(delete)) {
+                    for (Map.Entry<Key, Boolean> entry : batch.entrySet()) {
+                        Key key = entry.getKey();
+                        if (entry.getValue() == null) {
+                            sql.bindUuid(deleteStmt, 1, key.partyID);
+                            sql.bindUuid(deleteStmt, 2, key.memberID);
+                            deleteStmt.addBatch();
+                        } else {
+                            sql.bindUuid(upsertStmt, 1, key.partyID);
+                            sql.bindUuid(upsertStmt, 2, key.memberID);
+                            upsertStmt.setString(3, entry.getValue() ? "true" : "false");
+                            upsertStmt.addBatch();
+                        }
+                    }
+                    upsertStmt.executeBatch();
+                    deleteStmt.executeBatch();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            if (!(e instanceof DatabaseUnavailableException)) {
+                sql.getLogger().log(Level.WARNING, "Failed to write " + batch.size() + " party member changes, retrying on next flush", e);
+            }
+            requeue(batch);
+        }
+    }
+
+    /**
+     * 寫入失敗時放回尚未被新變更取代的項目
+     */
+    private synchronized void requeue(Map<Key, Boolean> batch) {
+        Map<Key, Boolean> merged = new LinkedHashMap<>(batch);
+        merged.putAll(pending);
+        pending = merged;
+    }
+}
@@ -1,18 +1,28 @@
 package io.github.cy3902.mcroguelike.path;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 import org.bukkit.entity.Player;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.json.JSONException;
+import org.json.JSONWriter;
 
 import io.github.cy3902.mcroguelike.abstracts.AbstractPath;
 import io.github.cy3902.mcroguelike.abstracts.AbstractRoom;
 import io.github.cy3902.mcroguelike.party.Party;
 import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.abstracts.AbstractMap;
+import io.github.cy3902.mcroguelike.config.ConfigFile;
+import io.github.cy3902.mcroguelike.files.RoomFile;
+import io.github.cy3902.mcroguelike.utils.JsonStreamReader;
 /**
  * Path類別擴展了AbstractsPath，用於生成具有指定節點數量和同階層分支限制的樹狀結構。
  */
@@ -25,7 +35,28 @@ public class Path extends AbstractPath {
     private List<AbstractsNode> nodes;
     private String name;
     private List<String> roomIds;
-    private static final Random RANDOM = new Random();
+    private Map<String, Double> roomWeights = new HashMap<>();
+    private RoomEligibilityIndex roomIndex;
+
+    /**
+     * 生成時使用的亂數，拓撲與房間使用各自的串流，房間變更不會影響節點的連接方式
+     */
+    private SplittableRandom topologyRandom = new SplittableRandom();
+    private SplittableRandom roomRandom = new SplittableRandom();
+
+    /**
+     * 節點的層級與邊的索引，在節點建立完成後由 rebuildIndex 重建
+     * 第 l 層的節點 ID 位於 levelOrder[levelOffsets[l]] 到 levelOrder[levelOffsets[l + 1] - 1]，
+     * 節點 id 的子節點與父節點以相同方式存放於 childIds 與 parentIds
+     */
+    private AbstractsNode[] nodeById = new AbstractsNode[0];
+    private int[] levelOffsets = {0};
+    private int[] levelOrder = new int[0];
+    private int[] childOffsets = {0};
+    private int[] childIds = new int[0];
+    private int[] parentOffsets = {0};
+    private int[] parentIds = new int[0];
+    private Map<Integer, List<AbstractsNode>> levelView = Collections.emptyMap();
     
     /**
      * 建構子，初始化Path類別，使用設定文件中的參數
@@ -114,24 +145,7 @@ public class Path extends AbstractPath {
         
         @Override
         public AbstractRoom RandomRoomByPath(int level) {
-            List<String> validRooms = new ArrayList<>();
-            for (String roomId : roomIds) {
-                AbstractRoom room = mcRogueLike.getRoomFile().getRoom(roomId);
-                
-                if(room == null) {
-                    continue;
-                }
-                mcRogueLike.info("room.getMinFloor() <= level: " + room.getMinFloor() + " <= " + level, Level.INFO);
-                if(room.getMinFloor() <= level && room.getMaxFloor() >= level) {
-                    validRooms.add(roomId);
-                }
-            }
-
-            if (validRooms.isEmpty()) {
-                return null;
-            }
-            
-            return mcRogueLike.getRoomFile().getRoom(validRooms.get(RANDOM.nextInt(validRooms.size())));
+            return getRoomIndex().sample(level, roomRandom);
         }
 
     }
@@ -139,30 +153,173 @@ public class Path extends AbstractPath {
 
  
 
+    /**
+     * 獲取房間索引，房間重新載入或變更後重新建立
+     * @return 房間索引
+     */
+    private RoomEligibilityIndex getRoomIndex() {
+        RoomFile roomFile = mcRogueLike.getRoomFile();
+        if (roomIndex == null || !roomIndex.isCurrent(roomFile)) {
+            roomIndex = RoomEligibilityIndex.build(roomFile, roomIds, roomWeights);
+        }
+        return roomIndex;
+    }
+
     @Override
     public List<AbstractsNode> getNodesByLevel(int level) {
-        List<AbstractsNode> levelNodes = new ArrayList<>();
-        for (AbstractsNode node : nodes) {
-            if (node.getLevel() == level) {
-                levelNodes.add(node);
-            }
-        }
-        return levelNodes;
+        List<AbstractsNode> levelNodes = levelView.get(level);
+        return levelNodes != null ? levelNodes : Collections.<AbstractsNode>emptyList();
     }
 
+    /**
+     * 獲取所有層級的節點，依層級排序且不可修改
+     * @return 層級與節點
+     */
     @Override
     public Map<Integer, List<AbstractsNode>> getAllLevelNodes() {
-        Map<Integer, List<AbstractsNode>> levelMap = new HashMap<>();
+        return levelView;
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levelOffsets.length - 1;
+    }
+
+    @Override
+    public AbstractsNode getNodeById(int id) {
+        return id >= 0 && id < nodeById.length ? nodeById[id] : null;
+    }
+
+    /**
+     * 獲取子節點ID
+     * @param id 節點ID
+     * @return 子節點ID，節點不存在時為空陣列
+     */
+    public int[] getChildIds(int id) {
+        return slice(childOffsets, childIds, id);
+    }
+
+    /**
+     * 獲取父節點ID
+     * @param id 節點ID
+     * @return 父節點ID，節點不存在時為空陣列
+     */
+    public int[] getParentIds(int id) {
+        return slice(parentOffsets, parentIds, id);
+    }
+
+    private static int[] slice(int[] offsets, int[] values, int id) {
+        if (id < 0 || id + 1 >= offsets.length) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(values, offsets[id], offsets[id + 1]);
+    }
+
+    /**
+     * 依照目前的節點重建層級與邊的索引
+     */
+    private void rebuildIndex() {
+        int maxId = -1;
+        int maxLevel = -1;
+        int edgeCount = 0;
+        int parentEdgeCount = 0;
+        for (AbstractsNode node : nodes) {
+            maxId = Math.max(maxId, node.getValue());
+            maxLevel = Math.max(maxLevel, node.getLevel());
+            edgeCount += node.getChildren().size();
+            parentEdgeCount += node.getParents().size();
+        }
+
+        AbstractsNode[] byId = new AbstractsNode[maxId + 1];
+        int[] offsets = new int[maxLevel + 2];
+        for (AbstractsNode node : nodes) {
+            byId[node.getValue()] = node;
+            offsets[node.getLevel() + 1]++;
+        }
+        for (int level = 0; level <= maxLevel; level++) {
+            offsets[level + 1] += offsets[level];
+        }
+        int[] order = new int[nodes.size()];
+        int[] cursor = Arrays.copyOf(offsets, maxLevel + 1);
         for (AbstractsNode node : nodes) {
-            levelMap.computeIfAbsent(node.getLevel(), k -> new ArrayList<>()).add(node);
+            order[cursor[node.getLevel()]++] = node.getValue();
+        }
+
+        int[] childStart = new int[maxId + 2];
+        int[] parentStart = new int[maxId + 2];
+        int[] children = new int[edgeCount];
+        int[] parents = new int[parentEdgeCount];
+        for (int id = 0, child = 0, parent = 0; id <= maxId; id++) {
+            AbstractsNode node = byId[id];
+            if (node != null) {
+                for (AbstractsNode c : node.getChildren()) {
+                    children[child++] = c.getValue();
+                }
+                for (AbstractsNode p : node.getParents()) {
+                    parents[parent++] = p.getValue();
+                }
+            }
+            childStart[id + 1] = child;
+            parentStart[id + 1] = parent;
+        }
+
+        Map<Integer, List<AbstractsNode>> levels = new TreeMap<>();
+        for (int level = 0; level <= maxLevel; level++) {
+            if (offsets[level + 1] > offsets[level]) {
+                levels.put(level, new LevelList(byId, order, offsets[level], offsets[level + 1]));
+            }
+        }
+
+        this.nodeById = byId;
+        this.levelOffsets = offsets;
+        this.levelOrder = order;
+        this.childOffsets = childStart;
+        this.childIds = children;
+        this.parentOffsets = parentStart;
+        this.parentIds = parents;
+        this.levelView = Collections.unmodifiableMap(levels);
+    }
+
+    /**
+     * 單一層級節點的唯讀檢視，直接對應 levelOrder 的區段
+     */
+    private static final class LevelList extends AbstractList<AbstractsNode> implements RandomAccess {
+        private final AbstractsNode[] byId;
+        private final int[] order;
+        private final int from;
+        private final int to;
+
+        private LevelList(AbstractsNode[] byId, int[] order, int from, int to) {
+            this.byId = byId;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public AbstractsNode get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            }
+            return byId[order[from + index]];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
         }
-        return levelMap;
     }
 
     /**
-     * 生成路徑樹
+     * 以指定的種子生成路徑樹
+     * @param seed 種子
      */
-    public void generateTree() {
+    @Override
+    public void generateTree(long seed) {
+        this.seed = seed;
+        this.topologyRandom = new SplittableRandom(seed);
+        this.roomRandom = topologyRandom.split();
+
         // 清空現有節點
         nodes.clear();
         
@@ -171,30 +328,26 @@ public class Path extends AbstractPath {
         nodes.add(root);
         this.root = root;  // 設置根節點
 
+        // 上一層的所有節點，生成時逐層往下推進
+        List<AbstractsNode> parentNodes = Collections.singletonList(root);
+        int parentLevel = 0;
 
         for (int level = 1; level < maxHeight; level++) {
-            // 獲取上一層的所有節點
-            List<AbstractsNode> parentNodes = getNodesByLevel(level - 1);
             if (parentNodes.isEmpty()) break;
             
             // 計算這一層還可以生成多少個節點
             int remainingNodes = totalNodes - nodes.size();
 
-            mcRogueLike.info("remainingNodes: " + remainingNodes, Level.INFO);
-            mcRogueLike.info("nodes.size(): " + nodes.size(), Level.INFO);
-            mcRogueLike.info("totalNodes: " + totalNodes, Level.INFO);
-            mcRogueLike.info("maxBranches: " + maxBranches, Level.INFO);
-
             // 如果這一層已經達到最大節點數，則跳出迴圈
             if (remainingNodes <= 0) break;
             
             // 隨機決定這個層級要生成多少個節點
-            int levelCount = getRandomBranchCount(Math.min(maxBranches, remainingNodes));
+            int levelCount = getRandomBranchCount(topologyRandom, Math.min(maxBranches, remainingNodes));
             List<AbstractsNode> levelNodes = new ArrayList<>();
             
             // 生成這一層的節點
             for (int i = 0; i < levelCount; i++) {
-                Node child = createNode(nodes.size(), level, RANDOM.nextDouble() < specialNodeProbability, false);
+                Node child = createNode(nodes.size(), level, topologyRandom.nextDouble() < specialNodeProbability, false);
                 nodes.add(child);
                 levelNodes.add(child);
             }
@@ -203,23 +356,26 @@ public class Path extends AbstractPath {
             List<AbstractsNode> availableChildren = new ArrayList<>(levelNodes);
             for (AbstractsNode child : availableChildren) {
                 // 隨機選擇一個父節點
-                AbstractsNode parent = parentNodes.get(RANDOM.nextInt(parentNodes.size()));
+                AbstractsNode parent = parentNodes.get(topologyRandom.nextInt(parentNodes.size()));
                 parent.getChildren().add(child);
                 child.getParents().add(parent);
             }
 
             // 為父節點添加額外的子節點
             for (AbstractsNode parent : parentNodes) {
-                int additionalChildrenCount = getRandomBranchCount(maxBranches - parent.getChildren().size());
+                int additionalChildrenCount = getRandomBranchCount(topologyRandom, maxBranches - parent.getChildren().size());
                 List<AbstractsNode> remainingChildren = new ArrayList<>(levelNodes);
                 remainingChildren.removeAll(parent.getChildren());
                 
                 for (int i = 0; i < additionalChildrenCount && !remainingChildren.isEmpty(); i++) {
-                    AbstractsNode child = remainingChildren.remove(RANDOM.nextInt(remainingChildren.size()));
+                    AbstractsNode child = remainingChildren.remove(topologyRandom.nextInt(remainingChildren.size()));
                     parent.getChildren().add(child);
                     child.getParents().add(parent);
                 }
             }
+
+            parentNodes = levelNodes;
+            parentLevel = level;
         }
         
         // 添加最終節點
@@ -229,29 +385,20 @@ public class Path extends AbstractPath {
             nodes.add(finalNode);
             
             // 將所有上一層的節點連接到最終節點
-            List<AbstractsNode> lastLevelNodes = getNodesByLevel(maxHeight - 1);
-            for (AbstractsNode parent : lastLevelNodes) {
-                parent.getChildren().add(finalNode);
-                finalNode.getParents().add(parent);
+            if (parentLevel == maxHeight - 1) {
+                for (AbstractsNode parent : parentNodes) {
+                    parent.getChildren().add(finalNode);
+                    finalNode.getParents().add(parent);
+                }
             }
         }
+
+        rebuildIndex();
         
         // 輸出節點關係以便調試
         printNodeRelationships();
     }
 
-    /**
-     * 獲取隨機的分支數
-     * @param maxPossible 最大可能的分支數
-     * @return 隨機的分支數
-     */
-    protected int getRandomBranchCount(int maxPossible) {
-        if (maxPossible <= 0) return 0;
-        if (maxPossible == 1) return 1;
-        // 使用更均勻的隨機數生成
-        return RANDOM.nextInt(maxPossible) + 1;
-    }
-
     /**
      * 獲取路徑名稱
      * @return 路徑名稱
@@ -280,185 +427,589 @@ public class Path extends AbstractPath {
 
     @Override
     public boolean convertPathFromJson(String json) {
-        JSONObject jsonObject = new JSONObject(json);
-        
-        // 創建節點映射
-        Map<Integer, Node> nodeMap = new HashMap<>();
-        JSONArray nodesArray = jsonObject.getJSONArray("nodes");
-
-        this.map = mcRogueLike.getMapFile().getMap(jsonObject.getString("map"));
-        this.totalNodes = jsonObject.getInt("totalNodes");
-        this.maxBranches = jsonObject.getInt("maxBranches");
-        this.maxPlayer = jsonObject.getInt("maxPlayer");
-        this.minPlayer = jsonObject.getInt("minPlayer");
-        this.maxHeight = jsonObject.getInt("maxHeight");
-        this.specialNodeProbability = jsonObject.getDouble("specialNodeProbability");
-        this.roomIds = jsonObject.getJSONArray("roomIds").toList().stream().map(Object::toString).collect(Collectors.toList());
-        this.bossRoomIds = jsonObject.getJSONArray("bossRoomIds").toList().stream().map(Object::toString).collect(Collectors.toList());
-        this.partyMembers = jsonObject.getJSONArray("partyMembers").toList().stream().map(Object::toString).map(UUID::fromString).collect(Collectors.toList());
         try {
-            // 第一遍：創建所有節點
-            for (int i = 0; i < nodesArray.length(); i++) {
-                JSONObject nodeJson = nodesArray.getJSONObject(i);
-                int nodeId = nodeJson.getInt("id");
-                int level = nodeJson.getInt("level");
-                boolean special = nodeJson.getBoolean("special");
-                boolean isCompleted = nodeJson.getBoolean("isCompleted");
-
-                Node node;
-                node = new Node(nodeId, level, special, isCompleted);
-                
-                
-                // 設置房間
-                if (nodeJson.has("roomId")) {
-                    String roomId = nodeJson.getString("roomId");
-                    AbstractRoom room = mcRogueLike.getRoomFile().getRoom(roomId);
-                    if (room != null) {
-                        node.setRoom(room);
-                    }else{
-                        node.setRoom(node.RandomRoomByPath(level));
-                    }
-                }
-                
-                nodeMap.put(nodeId, node);
-                
-                // 如果是根節點，設置為路徑的根節點
-                if (level == 0) {
-                    root = node;
-                }else{
-                    nodes.add(node);
+            return readJson(new StringReader(json));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 從 JSON 逐一讀取路徑，節點直接建立而不經過 JSONObject。
+     * 只保存種子的路徑以種子重新生成節點，再套用已完成的節點
+     * @param reader 來源
+     * @return 是否讀取成功
+     * @throws IOException 讀取來源失敗時拋出
+     */
+    @Override
+    public boolean readJson(Reader reader) throws IOException {
+        JsonStreamReader in = new JsonStreamReader(reader);
+        nodes.clear();
+        // 房間與節點關係在讀完所有欄位後才套用，舊檔案的欄位順序不固定
+        List<String> nodeRooms = new ArrayList<>();
+        List<int[]> nodeParents = new ArrayList<>();
+        List<Integer> completed = new ArrayList<>();
+        boolean hasNodes = false;
+        boolean hasSeed = false;
+        try {
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pathId":
+                        this.pathId = in.nextString();
+                        break;
+                    case "name":
+                        this.name = in.nextString();
+                        break;
+                    case "map":
+                        this.map = mcRogueLike.getMapFile().getMap(in.nextString());
+                        break;
+                    case "totalNodes":
+                        this.totalNodes = in.nextInt();
+                        break;
+                    case "maxBranches":
+                        this.maxBranches = in.nextInt();
+                        break;
+                    case "maxPlayer":
+                        this.maxPlayer = in.nextInt();
+                        break;
+                    case "minPlayer":
+                        this.minPlayer = in.nextInt();
+                        break;
+                    case "maxHeight":
+                        this.maxHeight = in.nextInt();
+                        break;
+                    case "specialNodeProbability":
+                        this.specialNodeProbability = in.nextDouble();
+                        break;
+                    case "roomIds":
+                        this.roomIds = readStrings(in);
+                        break;
+                    case "bossRoomIds":
+                        this.bossRoomIds = readStrings(in);
+                        break;
+                    case "roomWeights":
+                        this.roomWeights = new HashMap<>();
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            String roomId = in.nextName();
+                            roomWeights.put(roomId, in.nextDouble());
+                        }
+                        in.endObject();
+                        break;
+                    case "partyMembers":
+                        this.partyMembers = new ArrayList<>();
+                        for (String member : readStrings(in)) {
+                            partyMembers.add(UUID.fromString(member));
+                        }
+                        break;
+                    case "seed":
+                        this.seed = in.nextLong();
+                        hasSeed = true;
+                        break;
+                    case "completed":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            completed.add(in.nextInt());
+                        }
+                        in.endArray();
+                        break;
+                    case "nodes":
+                        hasNodes = true;
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            readNode(in, nodeRooms, nodeParents);
+                        }
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
                 }
             }
-            
-            // 第二遍：建立節點關係
-            for (int i = 0; i < nodesArray.length(); i++) {
-                JSONObject nodeJson = nodesArray.getJSONObject(i);
-                int nodeId = nodeJson.getInt("id");
-                AbstractPath.AbstractsNode node = nodeMap.get(nodeId);
-                
-                // 建立父節點關係
-                JSONArray parentIds = nodeJson.getJSONArray("parentIds");
-                for (int j = 0; j < parentIds.length(); j++) {
-                    int parentId = parentIds.getInt(j);
-                    AbstractPath.AbstractsNode parent = nodeMap.get(parentId);
-                    if (parent != null) {
-                        node.getParents().add(parent);
-                        parent.getChildren().add(node);
-                    }
+            in.endObject();
+        } catch (JSONException | IllegalArgumentException e) {
+            return false;
+        }
+        this.roomIndex = null;
+
+        if (!hasNodes) {
+            if (!hasSeed) {
+                return false;
+            }
+            generateTree(seed);
+            for (int id : completed) {
+                AbstractsNode node = getNodeById(id);
+                if (node != null) {
+                    node.setCompleted(true);
                 }
             }
             return true;
-        } catch (Exception e) {
-            return false;
         }
+
+        // 設置房間並建立節點關係
+        RoomFile roomFile = mcRogueLike.getRoomFile();
+        Map<Integer, AbstractsNode> nodeMap = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            AbstractsNode node = nodes.get(i);
+            nodeMap.put(node.getValue(), node);
+            String roomId = nodeRooms.get(i);
+            if (roomId != null) {
+                AbstractRoom room = roomFile.getRoom(roomId);
+                node.setRoom(room != null ? room : node.RandomRoomByPath(node.getLevel()));
+            }
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            AbstractsNode node = nodes.get(i);
+            for (int parentId : nodeParents.get(i)) {
+                AbstractsNode parent = nodeMap.get(parentId);
+                if (parent != null) {
+                    node.getParents().add(parent);
+                    parent.getChildren().add(node);
+                }
+            }
+        }
+        rebuildIndex();
+        return true;
+    }
+
+    /**
+     * 讀取單一節點，子節點ID由父節點關係推導而略過
+     */
+    private void readNode(JsonStreamReader in, List<String> nodeRooms, List<int[]> nodeParents) {
+        int id = 0;
+        int level = 0;
+        boolean special = false;
+        boolean isCompleted = false;
+        String roomId = null;
+        int[] parents = new int[0];
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    id = in.nextInt();
+                    break;
+                case "level":
+                    level = in.nextInt();
+                    break;
+                case "special":
+                    special = in.nextBoolean();
+                    break;
+                case "isCompleted":
+                    isCompleted = in.nextBoolean();
+                    break;
+                case "roomId":
+                    roomId = in.nextString();
+                    break;
+                case "parentIds":
+                    parents = readInts(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        if (id < 0 || id > PathBinaryFormat.MAX_COUNT || level < 0 || level > PathBinaryFormat.MAX_COUNT) {
+            throw new IllegalArgumentException("Invalid node in path file: id " + id + ", level " + level);
+        }
+
+        Node node = new Node(id, level, special, isCompleted);
+        // 如果是根節點，設置為路徑的根節點
+        if (level == 0) {
+            root = node;
+        }
+        nodes.add(node);
+        nodeRooms.add(roomId);
+        nodeParents.add(parents);
+    }
+
+    private static List<String> readStrings(JsonStreamReader in) {
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(in.nextString());
+        }
+        in.endArray();
+        return values;
+    }
+
+    private static int[] readInts(JsonStreamReader in) {
+        int[] values = new int[4];
+        int size = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = in.nextInt();
+        }
+        in.endArray();
+        return Arrays.copyOf(values, size);
     }
 
     /**
      * 將路徑轉換為 JSON 字符串
-     * @param path 要轉換的路徑
      * @param party 玩家
      * @return JSON 字符串
      */
     @Override
     public String convertPathToJson(Party party) {
-        JSONObject json = new JSONObject();
-        json.put("pathType", this.getClass().getSimpleName());
-        json.put("pathId", this.getPathId());
-        
-        // 根據路徑類型保存特定屬性
-        if (this instanceof Path) {
-            Path concretePath = (Path) this;
-            json.put("name", concretePath.getName());
-            json.put("totalNodes", concretePath.getTotalNodes());
-            json.put("maxBranches", concretePath.getMaxBranches());
-            json.put("maxPlayer", concretePath.getMaxPlayer());
-            json.put("minPlayer", concretePath.getMinPlayer());
-            json.put("maxHeight", concretePath.getMaxHeight());
-            json.put("specialNodeProbability", concretePath.getSpecialNodeProbability());
-            json.put("roomIds", new JSONArray(concretePath.getRoomIds()));
-            json.put("bossRoomIds", new JSONArray(concretePath.getBossRoomIds()));
-            json.put("map", concretePath.getMap().getMapLocation().getLocation().getWorld().getName());
-            json.put("partyMembers", party.getMembers().stream().map(Player::getUniqueId).collect(Collectors.toList()));
+        StringWriter writer = new StringWriter();
+        try {
+            writeJson(party, writer);
+        } catch (IOException e) {
+            // StringWriter 不會拋出 IOException
+            throw new UncheckedIOException(e);
         }
-        
-        // 保存節點數據
-        JSONArray nodesArray = new JSONArray();
-        Map<Integer, List<AbstractPath.AbstractsNode>> allNodes = this.getAllLevelNodes();
-        for (List<AbstractPath.AbstractsNode> levelNodes : allNodes.values()) {
-            for (AbstractPath.AbstractsNode node : levelNodes) {
-                JSONObject nodeJson = new JSONObject();
-                nodeJson.put("id", node.getValue());
-                nodeJson.put("level", node.getLevel());
-                nodeJson.put("special", node.isSpecial());
-                nodeJson.put("isCompleted", node.isCompleted());
+        return writer.toString();
+    }
+
+    /**
+     * 將路徑逐一寫出為 JSON，不建立 JSONObject
+     * @param party 玩家，為 null 時保存讀取時的隊伍成員
+     * @param writer 目的地
+     * @throws IOException 寫入失敗時拋出
+     */
+    @Override
+    public void writeJson(Party party, Writer writer) throws IOException {
+        try {
+            JSONWriter out = new JSONWriter(writer);
+            out.object();
+            out.key("pathType").value(this.getClass().getSimpleName());
+            out.key("pathId").value(this.getPathId());
+            out.key("name").value(name);
+            out.key("totalNodes").value(totalNodes);
+            out.key("maxBranches").value(maxBranches);
+            out.key("maxPlayer").value(maxPlayer);
+            out.key("minPlayer").value(minPlayer);
+            out.key("maxHeight").value(maxHeight);
+            out.key("specialNodeProbability").value(specialNodeProbability);
+            out.key("roomIds");
+            writeStrings(out, roomIds);
+            out.key("bossRoomIds");
+            writeStrings(out, bossRoomIds);
+            out.key("roomWeights").object();
+            for (Map.Entry<String, Double> entry : roomWeights.entrySet()) {
+                out.key(entry.getKey()).value(entry.getValue().doubleValue());
+            }
+            out.endObject();
+            out.key("map").value(getMap().getMapLocation().getLocation().getWorld().getName());
+            out.key("partyMembers").array();
+            for (UUID member : membersToSave(party)) {
+                out.value(member.toString());
+            }
+            out.endArray();
+            out.key("seed").value(seed);
+
+            if (mcRogueLike.getConfigFile().getPathStorage() == ConfigFile.PathStorage.seed) {
+                // 只保存種子與已完成的節點，讀取時重新生成
+                out.key("completed").array();
+                for (AbstractsNode node : nodes) {
+                    if (node.isCompleted()) {
+                        out.value(node.getValue());
+                    }
+                }
+                out.endArray();
+            } else {
+                // 保存節點數據
+                out.key("nodes").array();
+                for (List<AbstractsNode> levelNodes : levelView.values()) {
+                    for (AbstractsNode node : levelNodes) {
+                        writeNode(out, node);
+                    }
+                }
+                out.endArray();
+            }
+            out.endObject();
+        } catch (JSONException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void writeNode(JSONWriter out, AbstractsNode node) {
+        out.object();
+        out.key("id").value(node.getValue());
+        out.key("level").value(node.getLevel());
+        out.key("special").value(node.isSpecial());
+        out.key("isCompleted").value(node.isCompleted());
+        if (node.getRoom() != null) {
+            out.key("roomId").value(node.getRoom().getRoomId());
+        }
+
+        // 保存父節點ID
+        out.key("parentIds").array();
+        for (int parentId : getParentIds(node.getValue())) {
+            out.value(parentId);
+        }
+        out.endArray();
+
+        // 保存子節點ID
+        out.key("childIds").array();
+        for (int childId : getChildIds(node.getValue())) {
+            out.value(childId);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private static void writeStrings(JSONWriter out, List<String> values) {
+        out.array();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+
+
+
+    /**
+     * 將路徑寫出為二進位格式，節點關係只保存父節點
+     * @param party 玩家，為 null 時保存讀取時的隊伍成員
+     * @param out 目的地
+     * @throws IOException 寫入失敗時拋出
+     */
+    @Override
+    public void writeBinary(Party party, DataOutput out) throws IOException {
+        boolean full = mcRogueLike.getConfigFile().getPathStorage() == ConfigFile.PathStorage.full;
+        String mapName = map != null ? map.getMapLocation().getLocation().getWorld().getName() : null;
+
+        // 字串表
+        PathBinaryFormat.StringTable strings = new PathBinaryFormat.StringTable();
+        strings.add(pathId);
+        strings.add(name);
+        strings.add(mapName);
+        roomIds.forEach(strings::add);
+        bossRoomIds.forEach(strings::add);
+        roomWeights.keySet().forEach(strings::add);
+        if (full) {
+            for (AbstractsNode node : nodes) {
                 if (node.getRoom() != null) {
-                    nodeJson.put("roomId", node.getRoom().getRoomId());
+                    strings.add(node.getRoom().getRoomId());
                 }
-                
-                // 保存父節點ID
-                JSONArray parentIds = new JSONArray();
-                for (AbstractPath.AbstractsNode parent : node.getParents()) {
-                    parentIds.put(parent.getValue());
+            }
+        }
+
+        PathBinaryFormat.writeHeader(out, this.getClass().getSimpleName());
+        strings.write(out);
+        PathBinaryFormat.writeVarInt(out, strings.indexOf(pathId));
+        PathBinaryFormat.writeVarInt(out, strings.indexOf(name));
+        PathBinaryFormat.writeVarInt(out, strings.indexOf(mapName));
+        PathBinaryFormat.writeVarInt(out, totalNodes);
+        PathBinaryFormat.writeVarInt(out, maxBranches);
+        PathBinaryFormat.writeVarInt(out, maxPlayer);
+        PathBinaryFormat.writeVarInt(out, minPlayer);
+        PathBinaryFormat.writeVarInt(out, maxHeight);
+        out.writeDouble(specialNodeProbability);
+        writeStringIndexes(out, strings, roomIds);
+        writeStringIndexes(out, strings, bossRoomIds);
+        PathBinaryFormat.writeVarInt(out, roomWeights.size());
+        for (Map.Entry<String, Double> entry : roomWeights.entrySet()) {
+            PathBinaryFormat.writeVarInt(out, strings.indexOf(entry.getKey()));
+            out.writeDouble(entry.getValue());
+        }
+        List<UUID> members = membersToSave(party);
+        PathBinaryFormat.writeVarInt(out, members.size());
+        for (UUID member : members) {
+            out.writeLong(member.getMostSignificantBits());
+            out.writeLong(member.getLeastSignificantBits());
+        }
+        out.writeLong(seed);
+        out.writeBoolean(full);
+
+        if (!full) {
+            // 只保存種子與已完成的節點，以節點ID為索引
+            boolean[] completed = new boolean[nodeById.length];
+            for (AbstractsNode node : nodes) {
+                completed[node.getValue()] = node.isCompleted();
+            }
+            PathBinaryFormat.writeVarInt(out, completed.length);
+            PathBinaryFormat.writeBits(out, completed);
+            return;
+        }
+
+        // 依層級順序保存節點，旗標以節點的順序為索引
+        PathBinaryFormat.writeVarInt(out, levelOrder.length);
+        boolean[] special = new boolean[levelOrder.length];
+        boolean[] completed = new boolean[levelOrder.length];
+        for (int i = 0; i < levelOrder.length; i++) {
+            AbstractsNode node = nodeById[levelOrder[i]];
+            PathBinaryFormat.writeVarInt(out, node.getValue());
+            PathBinaryFormat.writeVarInt(out, node.getLevel());
+            PathBinaryFormat.writeVarInt(out, node.getRoom() != null ? strings.indexOf(node.getRoom().getRoomId()) + 1 : 0);
+            special[i] = node.isSpecial();
+            completed[i] = node.isCompleted();
+        }
+        PathBinaryFormat.writeBits(out, special);
+        PathBinaryFormat.writeBits(out, completed);
+        for (int id : levelOrder) {
+            int[] parents = getParentIds(id);
+            PathBinaryFormat.writeVarInt(out, parents.length);
+            for (int parentId : parents) {
+                PathBinaryFormat.writeVarInt(out, parentId);
+            }
+        }
+    }
+
+    /**
+     * 讀取 writeBinary 寫出的路徑
+     * @param in 來源
+     * @return 是否讀取成功
+     * @throws IOException 檔案損毀或版本不支援時拋出
+     */
+    @Override
+    public boolean readBinary(DataInput in) throws IOException {
+        PathBinaryFormat.readVersion(in);
+        PathBinaryFormat.readString(in);
+        PathBinaryFormat.StringTable strings = PathBinaryFormat.StringTable.read(in);
+        this.pathId = strings.get(PathBinaryFormat.readVarInt(in));
+        this.name = strings.get(PathBinaryFormat.readVarInt(in));
+        String mapName = strings.get(PathBinaryFormat.readVarInt(in));
+        this.map = mapName != null ? mcRogueLike.getMapFile().getMap(mapName) : null;
+        this.totalNodes = PathBinaryFormat.readCount(in);
+        this.maxBranches = PathBinaryFormat.readCount(in);
+        this.maxPlayer = PathBinaryFormat.readCount(in);
+        this.minPlayer = PathBinaryFormat.readCount(in);
+        this.maxHeight = PathBinaryFormat.readCount(in);
+        this.specialNodeProbability = in.readDouble();
+        this.roomIds = readStringIndexes(in, strings);
+        this.bossRoomIds = readStringIndexes(in, strings);
+        this.roomWeights = new HashMap<>();
+        int weightCount = PathBinaryFormat.readCount(in);
+        for (int i = 0; i < weightCount; i++) {
+            String roomId = strings.get(PathBinaryFormat.readVarInt(in));
+            roomWeights.put(roomId, in.readDouble());
+        }
+        this.roomIndex = null;
+        int memberCount = PathBinaryFormat.readCount(in);
+        this.partyMembers = new ArrayList<>();
+        for (int i = 0; i < memberCount; i++) {
+            partyMembers.add(new UUID(in.readLong(), in.readLong()));
+        }
+        this.seed = in.readLong();
+        boolean full = in.readBoolean();
+
+        if (!full) {
+            generateTree(seed);
+            boolean[] completed = PathBinaryFormat.readBits(in, PathBinaryFormat.readCount(in));
+            for (int id = 0; id < completed.length; id++) {
+                AbstractsNode node = getNodeById(id);
+                if (node != null && completed[id]) {
+                    node.setCompleted(true);
                 }
-                nodeJson.put("parentIds", parentIds);
-                
-                // 保存子節點ID
-                JSONArray childIds = new JSONArray();
-                for (AbstractPath.AbstractsNode child : node.getChildren()) {
-                    childIds.put(child.getValue());
+            }
+            return true;
+        }
+
+        int nodeCount = PathBinaryFormat.readCount(in);
+        int[] ids = new int[nodeCount];
+        int[] levels = new int[nodeCount];
+        int[] rooms = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            ids[i] = PathBinaryFormat.checkCount(PathBinaryFormat.readVarInt(in));
+            levels[i] = PathBinaryFormat.checkCount(PathBinaryFormat.readVarInt(in));
+            rooms[i] = PathBinaryFormat.readVarInt(in);
+        }
+        boolean[] special = PathBinaryFormat.readBits(in, nodeCount);
+        boolean[] completed = PathBinaryFormat.readBits(in, nodeCount);
+
+        nodes.clear();
+        RoomFile roomFile = mcRogueLike.getRoomFile();
+        Map<Integer, AbstractsNode> nodeMap = new HashMap<>();
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = new Node(ids[i], levels[i], special[i], completed[i]);
+            if (rooms[i] > 0) {
+                AbstractRoom room = roomFile.getRoom(strings.get(rooms[i] - 1));
+                node.setRoom(room != null ? room : node.RandomRoomByPath(levels[i]));
+            }
+            // 如果是根節點，設置為路徑的根節點
+            if (levels[i] == 0) {
+                root = node;
+            }
+            nodes.add(node);
+            nodeMap.put(ids[i], node);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            AbstractsNode node = nodes.get(i);
+            int parentCount = PathBinaryFormat.readCount(in);
+            for (int j = 0; j < parentCount; j++) {
+                AbstractsNode parent = nodeMap.get(PathBinaryFormat.readVarInt(in));
+                if (parent != null) {
+                    node.getParents().add(parent);
+                    parent.getChildren().add(node);
                 }
-                nodeJson.put("childIds", childIds);
-                
-                nodesArray.put(nodeJson);
             }
         }
-        json.put("nodes", nodesArray);
-        
-        return json.toString();
+        rebuildIndex();
+        return true;
     }
 
+    /**
+     * 保存的隊伍成員，沒有隊伍時使用讀取時的成員
+     */
+    private List<UUID> membersToSave(Party party) {
+        if (party == null) {
+            return partyMembers;
+        }
+        List<UUID> members = new ArrayList<>();
+        for (Player member : party.getMembers()) {
+            members.add(member.getUniqueId());
+        }
+        return members;
+    }
 
+    private static void writeStringIndexes(DataOutput out, PathBinaryFormat.StringTable strings, List<String> values) throws IOException {
+        PathBinaryFormat.writeVarInt(out, values.size());
+        for (String value : values) {
+            PathBinaryFormat.writeVarInt(out, strings.indexOf(value));
+        }
+    }
 
+    private static List<String> readStringIndexes(DataInput in, PathBinaryFormat.StringTable strings) throws IOException {
+        int size = PathBinaryFormat.readCount(in);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(strings.get(PathBinaryFormat.readVarInt(in)));
+        }
+        return values;
+    }
 
     /**
-     * 輸出所有節點及其父節點關係
+     * 輸出所有節點及其父節點關係，只在記錄等級為 FINE 時輸出
      */
     private void printNodeRelationships() {
-        MCRogueLike.getInstance().getLogger().info("=== Node Relationships ===");
-        Set<AbstractsNode> visited = new HashSet<>();
-        Queue<AbstractsNode> queue = new LinkedList<>();
-        queue.add(root);
-        visited.add(root);
-
-        while (!queue.isEmpty()) {
-            AbstractsNode current = queue.poll();
-            StringBuilder sb = new StringBuilder();
-            sb.append("Node").append(current.getValue())
-              .append(" (Level ").append(current.getLevel()).append(")")
-              .append(" -> Parents: ");
-            
-            if (current.getParents().isEmpty()) {
-                sb.append("None");
-            } else {
-                for (AbstractsNode parent : current.getParents()) {
-                    sb.append("Node").append(parent.getValue())
-                      .append(" (Level ").append(parent.getLevel()).append("), ");
-                }
-                // 移除最後的逗號和空格
-                sb.setLength(sb.length() - 2);
-            }
-            
-            MCRogueLike.getInstance().getLogger().info(sb.toString());
+        java.util.logging.Logger logger = MCRogueLike.getInstance().getLogger();
+        if (!logger.isLoggable(Level.FINE)) {
+            return;
+        }
+        logger.fine("=== Node Relationships ===");
+        for (List<AbstractsNode> levelNodes : levelView.values()) {
+            for (AbstractsNode current : levelNodes) {
+                StringBuilder sb = new StringBuilder();
+                sb.append("Node").append(current.getValue())
+                  .append(" (Level ").append(current.getLevel()).append(")")
+                  .append(" -> Parents: ");
 
-            // 添加子節點到隊列
-            for (AbstractsNode child : current.getChildren()) {
-                if (!visited.contains(child)) {
-                    visited.add(child);
-                    queue.add(child);
+                int[] parents = getParentIds(current.getValue());
+                if (parents.length == 0) {
+                    sb.append("None");
+                } else {
+                    for (int parentId : parents) {
+                        sb.append("Node").append(parentId)
+                          .append(" (Level ").append(nodeById[parentId].getLevel()).append("), ");
+                    }
+                    // 移除最後的逗號和空格
+                    sb.setLength(sb.length() - 2);
                 }
+
+                logger.fine(sb.toString());
             }
         }
-        MCRogueLike.getInstance().getLogger().info("========================");
+        logger.fine("========================");
     }
 
     /**
@@ -494,6 +1045,23 @@ public class Path extends AbstractPath {
         return roomIds;
     }
 
+    /**
+     * 獲取房間權重
+     * @return 房間ID與權重
+     */
+    public Map<String, Double> getRoomWeights() {
+        return roomWeights;
+    }
+
+    /**
+     * 設置房間權重，未設定的房間權重為 1
+     * @param roomWeights 房間ID與權重
+     */
+    public void setRoomWeights(Map<String, Double> roomWeights) {
+        this.roomWeights = new HashMap<>(roomWeights);
+        this.roomIndex = null;
+    }
+
     /**
      * 獲取Boss房間名稱列表
      * @return Boss房間名稱列表
@@ -0,0 +1,236 @@
+package io.github.cy3902.mcroguelike.path;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 玩家路徑的二進位檔案格式
+ * 檔案以魔數與版本開頭，接著是路徑類型，其餘內容由路徑自行寫入。
+ * 整數以 varint 保存，字串只在字串表中保存一次，布林旗標以位元組集合保存。
+ */
+public final class PathBinaryFormat {
+    public static final String FILE_EXTENSION = ".bin";
+
+    /**
+     * 目前寫入的版本，讀取時接受不大於此版本的檔案
+     */
+    public static final int VERSION = 1;
+    private static final int MAGIC = 0x4D435250; // "MCRP"
+
+    /**
+     * 檔案中任何長度或數量的上限，避免損壞的檔案配置過大的陣列
+     */
+    public static final int MAX_COUNT = 1 << 20;
+
+    private PathBinaryFormat() {
+    }
+
+    /**
+     * 寫入檔案開頭
+     * @param out 目的地
+     * @param pathType 路徑類型
+     * @throws IOException 寫入失敗時拋出
+     */
+    public static void writeHeader(DataOutput out, String pathType) throws IOException {
+        out.writeInt(MAGIC);
+        writeVarInt(out, VERSION);
+        writeString(out, pathType);
+    }
+
+    /**
+     * 讀取並檢查檔案開頭
+     * @param in 來源
+     * @return 檔案版本
+     * @throws IOException 不是路徑檔案或版本過新時拋出
+     */
+    public static int readVersion(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a path file");
+        }
+        int version = readVarInt(in);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported path file version: " + version);
+        }
+        return version;
+    }
+
+    /**
+     * 只讀取檔案開頭的路徑類型
+     * @param in 來源
+     * @return 路徑類型
+     * @throws IOException 不是路徑檔案或版本過新時拋出
+     */
+    public static String readPathType(DataInput in) throws IOException {
+        readVersion(in);
+        return readString(in);
+    }
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * 讀取長度或數量
+     * @param in 來源
+     * @return 介於 0 與 MAX_COUNT 之間的數值
+     * @throws IOException 數值為負或超過上限時拋出
+     */
+    public static int readCount(DataInput in) throws IOException {
+        return checkCount(readVarInt(in));
+    }
+
+    /**
+     * 檢查長度或數量是否在允許範圍內
+     * @param count 數值
+     * @return 原本的數值
+     * @throws IOException 數值為負或超過上限時拋出
+     */
+    public static int checkCount(int count) throws IOException {
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IOException("Invalid count in path file: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * 寫入可為 null 的字串，長度加一後以 varint 保存，0 表示 null
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = readCount(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 以每個位元組八個旗標寫入
+     * @param out 目的地
+     * @param flags 旗標
+     * @throws IOException 寫入失敗時拋出
+     */
+    public static void writeBits(DataOutput out, boolean[] flags) throws IOException {
+        for (int i = 0; i < flags.length; i += 8) {
+            int b = 0;
+            for (int bit = 0; bit < 8 && i + bit < flags.length; bit++) {
+                if (flags[i + bit]) {
+                    b |= 1 << bit;
+                }
+            }
+            out.writeByte(b);
+        }
+    }
+
+    /**
+     * 讀取 writeBits 寫入的旗標
+     * @param in 來源
+     * @param count 旗標數量
+     * @return 旗標
+     * @throws IOException 讀取失敗或數量超過上限時拋出
+     */
+    public static boolean[] readBits(DataInput in, int count) throws IOException {
+        boolean[] flags = new boolean[checkCount(count)];
+        for (int i = 0; i < count; i += 8) {
+            int b = in.readUnsignedByte();
+            for (int bit = 0; bit < 8 && i + bit < count; bit++) {
+                flags[i + bit] = (b & (1 << bit)) != 0;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * 寫入時收集字串並分配索引，讀取時依索引取回字串
+     */
+    public static final class StringTable {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        /**
+         * 加入字串
+         * @param value 字串
+         * @return 字串的索引
+         */
+        public int add(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                values.add(value);
+                indexes.put(value, index);
+            }
+            return index;
+        }
+
+        /**
+         * 獲取已加入字串的索引
+         * @param value 字串
+         * @return 索引
+         */
+        public int indexOf(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                throw new IllegalArgumentException("String not in table: " + value);
+            }
+            return index;
+        }
+
+        public String get(int index) throws IOException {
+            if (index < 0 || index >= values.size()) {
+                throw new IOException("String index out of range: " + index);
+            }
+            return values.get(index);
+        }
+
+        public void write(DataOutput out) throws IOException {
+            writeVarInt(out, values.size());
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+
+        public static StringTable read(DataInput in) throws IOException {
+            StringTable table = new StringTable();
+            int size = readCount(in);
+            for (int i = 0; i < size; i++) {
+                String value = readString(in);
+                table.values.add(value);
+                table.indexes.putIfAbsent(value, i);
+            }
+            return table;
+        }
+    }
+}
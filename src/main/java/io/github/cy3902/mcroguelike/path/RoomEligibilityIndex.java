@@ -0,0 +1,189 @@
+package io.github.cy3902.mcroguelike.path;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractRoom;
+import io.github.cy3902.mcroguelike.files.RoomFile;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+/**
+ * 路徑中每個樓層可以出現的房間索引
+ * 依照房間的最小與最大樓層把樓層切成數個區段，每個區段建立一個別名表（alias table），
+ * 抽選房間只需要一次查表與兩個亂數。房間變更後由路徑重新建立。
+ */
+public class RoomEligibilityIndex {
+    /**
+     * 樓層範圍不超過此數量時以陣列直接對應區段，否則以二分搜尋尋找區段
+     */
+    private static final int MAX_DENSE_FLOORS = 1 << 16;
+
+    private final RoomFile roomFile;
+    private final int modCount;
+
+    /**
+     * 第 i 個區段涵蓋 segmentStarts[i] 到 segmentStarts[i + 1] - 1 樓
+     */
+    private final int[] segmentStarts;
+    private final AliasTable[] segments;
+    private final int[] segmentByFloor;
+
+    /**
+     * 單一區段的別名表
+     */
+    private static final class AliasTable {
+        private final AbstractRoom[] rooms;
+        private final double[] probability;
+        private final int[] alias;
+
+        private AliasTable(List<AbstractRoom> rooms, List<Double> weights) {
+            int n = rooms.size();
+            this.rooms = rooms.toArray(new AbstractRoom[0]);
+            this.probability = new double[n];
+            this.alias = new int[n];
+
+            double total = 0;
+            for (double weight : weights) {
+                total += weight;
+            }
+            double[] scaled = new double[n];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights.get(i) * n / total;
+                if (scaled[i] < 1.0) {
+                    small.push(i);
+                } else {
+                    large.push(i);
+                }
+            }
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int less = small.pop();
+                int more = large.pop();
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1.0;
+                if (scaled[more] < 1.0) {
+                    small.push(more);
+                } else {
+                    large.push(more);
+                }
+            }
+            // 剩下的項目只會因浮點誤差偏離 1
+            while (!large.isEmpty()) {
+                probability[large.pop()] = 1.0;
+            }
+            while (!small.isEmpty()) {
+                probability[small.pop()] = 1.0;
+            }
+        }
+
+        private AbstractRoom sample(SplittableRandom random) {
+            int column = random.nextInt(rooms.length);
+            return random.nextDouble() < probability[column] ? rooms[column] : rooms[alias[column]];
+        }
+    }
+
+    private RoomEligibilityIndex(RoomFile roomFile, int[] segmentStarts, AliasTable[] segments) {
+        this.roomFile = roomFile;
+        this.modCount = roomFile.getModCount();
+        this.segmentStarts = segmentStarts;
+        this.segments = segments;
+
+        long range = segmentStarts.length == 0 ? 0 : (long) segmentStarts[segmentStarts.length - 1] - segmentStarts[0];
+        if (range > 0 && range <= MAX_DENSE_FLOORS) {
+            this.segmentByFloor = new int[(int) range];
+            for (int i = 0; i < segments.length; i++) {
+                Arrays.fill(segmentByFloor, segmentStarts[i] - segmentStarts[0], segmentStarts[i + 1] - segmentStarts[0], i);
+            }
+        } else {
+            this.segmentByFloor = null;
+        }
+    }
+
+    /**
+     * 依照路徑的房間列表建立索引，找不到或權重不大於 0 的房間會被略過
+     * @param roomFile 房間文件
+     * @param roomIds 房間ID列表，重複的房間會累加機率
+     * @param weights 房間權重，未設定的房間權重為 1
+     * @return 房間索引
+     */
+    public static RoomEligibilityIndex build(RoomFile roomFile, List<String> roomIds, Map<String, Double> weights) {
+        List<AbstractRoom> rooms = new ArrayList<>();
+        List<Double> roomWeights = new ArrayList<>();
+        TreeSet<Integer> boundaries = new TreeSet<>();
+        for (String roomId : roomIds) {
+            AbstractRoom room = roomFile.getRoom(roomId);
+            Double weight = weights.get(roomId);
+            double value = weight != null ? weight : 1.0;
+            if (room == null || !(value > 0) || room.getMinFloor() > room.getMaxFloor()) {
+                continue;
+            }
+            rooms.add(room);
+            roomWeights.add(value);
+            boundaries.add(room.getMinFloor());
+            // 避免最大樓層為 Integer.MAX_VALUE 時溢位
+            boundaries.add(room.getMaxFloor() == Integer.MAX_VALUE ? Integer.MAX_VALUE : room.getMaxFloor() + 1);
+        }
+
+        if (boundaries.size() < 2) {
+            return new RoomEligibilityIndex(roomFile, new int[0], new AliasTable[0]);
+        }
+        int[] starts = new int[boundaries.size()];
+        int index = 0;
+        for (int boundary : boundaries) {
+            starts[index++] = boundary;
+        }
+
+        AliasTable[] segments = new AliasTable[starts.length - 1];
+        for (int i = 0; i < segments.length; i++) {
+            List<AbstractRoom> eligible = new ArrayList<>();
+            List<Double> eligibleWeights = new ArrayList<>();
+            for (int r = 0; r < rooms.size(); r++) {
+                AbstractRoom room = rooms.get(r);
+                if (room.getMinFloor() <= starts[i] && room.getMaxFloor() >= starts[i]) {
+                    eligible.add(room);
+                    eligibleWeights.add(roomWeights.get(r));
+                }
+            }
+            segments[i] = eligible.isEmpty() ? null : new AliasTable(eligible, eligibleWeights);
+        }
+        return new RoomEligibilityIndex(roomFile, starts, segments);
+    }
+
+    /**
+     * 檢查索引是否對應目前的房間
+     * @param roomFile 目前的房間文件
+     * @return 房間沒有變更時返回 true
+     */
+    public boolean isCurrent(RoomFile roomFile) {
+        return this.roomFile == roomFile && this.modCount == roomFile.getModCount();
+    }
+
+    /**
+     * 依照權重隨機抽選可以出現在指定樓層的房間
+     * @param floor 樓層
+     * @param random 亂數產生器
+     * @return 房間，沒有符合的房間時為 null
+     */
+    public AbstractRoom sample(int floor, SplittableRandom random) {
+        AliasTable table = find(floor);
+        return table != null ? table.sample(random) : null;
+    }
+
+    private AliasTable find(int floor) {
+        if (segments.length == 0 || floor < segmentStarts[0] || floor >= segmentStarts[segmentStarts.length - 1]) {
+            return null;
+        }
+        if (segmentByFloor != null) {
+            return segments[segmentByFloor[floor - segmentStarts[0]]];
+        }
+        int position = Arrays.binarySearch(segmentStarts, floor);
+        return segments[position >= 0 ? position : -position - 2];
+    }
+}
@@ -0,0 +1,297 @@
+package io.github.cy3902.mcroguelike.schem;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.IllegalPluginAccessException;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * 結構貼上排程器
+ * 使用獨立的執行緒池執行 FAWE 編輯，每個世界同時進行的貼上數量有上限，
+ * 超出的任務依照先進先出的順序排隊等候。
+ */
+public class PasteScheduler {
+
+    /**
+     * 貼上任務
+     */
+    @FunctionalInterface
+    public interface PasteJob {
+        /**
+         * 執行貼上
+         * @return 是否成功
+         * @throws Exception 執行失敗
+         */
+        boolean run() throws Exception;
+    }
+
+    /**
+     * 排隊中的任務
+     */
+    private static class QueuedJob {
+        private final PasteJob job;
+        private final CompletableFuture<Boolean> result;
+        private final long queuedAt;
+
+        private QueuedJob(PasteJob job, CompletableFuture<Boolean> result) {
+            this.job = job;
+            this.result = result;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * 單一世界的任務佇列
+     */
+    private static class WorldQueue {
+        private final ArrayDeque<QueuedJob> pending = new ArrayDeque<>();
+        private int running;
+    }
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final ExecutorService executor;
+    private final int maxConcurrentPerWorld;
+    private final Map<String, WorldQueue> queues = new HashMap<>();
+    private boolean closed;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private volatile long lastLatencyNanos;
+
+    /**
+     * 建構子
+     * @param threads 執行緒數量
+     * @param maxConcurrentPerWorld 每個世界同時貼上的上限
+     */
+    public PasteScheduler(int threads, int maxConcurrentPerWorld) {
+        this.maxConcurrentPerWorld = Math.max(1, maxConcurrentPerWorld);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MCRogueLike-Paste-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * 提交貼上任務
+     * @param world 世界名稱
+     * @param job 貼上任務
+     * @return 是否成功，結果在伺服器主執行緒回報；排程器關閉後提交的任務直接回報失敗
+     */
+    public CompletableFuture<Boolean> submit(String world, PasteJob job) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        QueuedJob queued = new QueuedJob(job, result);
+        synchronized (queues) {
+            if (closed) {
+                result.complete(false);
+                return result;
+            }
+            queues.computeIfAbsent(world, k -> new WorldQueue()).pending.add(queued);
+            dispatch(world);
+        }
+        return result;
+    }
+
+    /**
+     * 在未達上限時取出佇列中的下一個任務執行，呼叫時必須持有 queues 鎖
+     * @param world 世界名稱
+     */
+    private void dispatch(String world) {
+        WorldQueue queue = queues.get(world);
+        while (queue.running < maxConcurrentPerWorld && !queue.pending.isEmpty()) {
+            QueuedJob next = queue.pending.poll();
+            queue.running++;
+            executor.execute(() -> execute(world, next));
+        }
+    }
+
+    private void execute(String world, QueuedJob queued) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = queued.job.run();
+        } catch (Exception e) {
+            mcroguelike.getLogger().log(Level.SEVERE, "Paste failed in world " + world, e);
+        } finally {
+            long end = System.nanoTime();
+            record(start - queued.queuedAt, end - queued.queuedAt, success);
+            synchronized (queues) {
+                queues.get(world).running--;
+                dispatch(world);
+                if (closed && isIdle()) {
+                    executor.shutdown();
+                }
+            }
+            complete(queued.result, success);
+        }
+    }
+
+    /**
+     * 在伺服器主執行緒回報結果，插件已停用而無法排程時直接回報，避免呼叫端永遠等待
+     * @param result 結果
+     * @param success 是否成功
+     */
+    private void complete(CompletableFuture<Boolean> result, boolean success) {
+        if (mcroguelike.isEnabled()) {
+            try {
+                Bukkit.getScheduler().runTask(mcroguelike, () -> result.complete(success));
+                return;
+            } catch (IllegalPluginAccessException e) {
+                // 插件正在停用
+            }
+        }
+        result.complete(success);
+    }
+
+    private void record(long waitNanos, long latencyNanos, boolean success) {
+        if (success) {
+            completed.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        totalWaitNanos.addAndGet(waitNanos);
+        totalLatencyNanos.addAndGet(latencyNanos);
+        lastLatencyNanos = latencyNanos;
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    /**
+     * 停止接受新任務，已排隊的任務（例如清除格位）仍會執行完畢，之後關閉執行緒池
+     */
+    public void shutdown() {
+        synchronized (queues) {
+            closed = true;
+            if (isIdle()) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 等待已排隊的任務執行完畢，必須先呼叫 shutdown
+     * @param timeout 最長等待時間
+     * @param unit 時間單位
+     * @return 在時間內完成時返回 true
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        try {
+            return executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 檢查是否沒有排隊或執行中的任務，呼叫時必須持有 queues 鎖
+     */
+    private boolean isIdle() {
+        for (WorldQueue queue : queues.values()) {
+            if (queue.running > 0 || !queue.pending.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 獲取各世界排隊中的任務數量
+     * @return 世界名稱與排隊數量
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        synchronized (queues) {
+            for (Map.Entry<String, WorldQueue> entry : queues.entrySet()) {
+                depths.put(entry.getKey(), entry.getValue().pending.size());
+            }
+        }
+        return depths;
+    }
+
+    /**
+     * 獲取排隊中的任務總數
+     * @return 任務數量
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        synchronized (queues) {
+            for (WorldQueue queue : queues.values()) {
+                depth += queue.pending.size();
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * 獲取執行中的任務總數
+     * @return 任務數量
+     */
+    public int getRunning() {
+        int running = 0;
+        synchronized (queues) {
+            for (WorldQueue queue : queues.values()) {
+                running += queue.running;
+            }
+        }
+        return running;
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * 獲取平均排隊時間
+     * @return 毫秒
+     */
+    public long getAverageWaitMillis() {
+        long count = completed.get() + failed.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count);
+    }
+
+    /**
+     * 獲取平均貼上延遲（從提交到完成）
+     * @return 毫秒
+     */
+    public long getAverageLatencyMillis() {
+        long count = completed.get() + failed.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / count);
+    }
+
+    public long getLastLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    public int getMaxConcurrentPerWorld() {
+        return maxConcurrentPerWorld;
+    }
+}
@@ -0,0 +1,231 @@
+package io.github.cy3902.mcroguelike.schem;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.session.ClipboardHolder;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractRoom.SpawnPoint;
+import io.github.cy3902.mcroguelike.utils.LocationUtils;
+
+import org.bukkit.Location;
+import org.bukkit.util.Vector;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 結構放置計畫
+ * 針對單一房間與結構預先計算貼上偏移、玩家出生點與怪物生成點的相對位置，
+ * 每次貼上與計算生成位置時只需要做一次向量相加。
+ */
+public class PlacementPlan {
+
+    /**
+     * 單一旋轉角度的放置資料
+     */
+    public static class Variant {
+        private final int rotation;
+        private final AffineTransform transform;
+        private final ClipboardHolder holder;
+        private final BlockVector3 pasteOffset;
+        private final BlockVector3 footprintMin;
+        private final BlockVector3 footprintMax;
+        private final Vector playerSpawnOffset;
+        private final Map<SpawnPoint, Vector> spawnPointOffsets = new IdentityHashMap<>();
+
+        private Variant(PlacementPlan plan, int rotation) {
+            this.rotation = rotation;
+            this.transform = new AffineTransform().rotateY(-rotation);
+            this.holder = new ClipboardHolder(plan.entry.getClipboard());
+            if (rotation != 0) {
+                holder.setTransform(transform);
+            }
+
+            // 方塊 p 會貼在 to + T(p - origin)，使結構中心對齊貼上位置
+            BlockVector3 origin = plan.entry.getClipboard().getOrigin();
+            BlockVector3 center = plan.entry.getRegionCenter();
+            BlockVector3 rotated = round(transform.apply(origin.subtract(center).toVector3()));
+            this.pasteOffset = rotated.subtract(origin);
+
+            // 結構範圍相對於貼上目標的偏移，旋轉後對角仍為對角
+            Region region = plan.entry.getClipboard().getRegion();
+            BlockVector3 a = round(transform.apply(region.getMinimumPoint().subtract(origin).toVector3()));
+            BlockVector3 b = round(transform.apply(region.getMaximumPoint().subtract(origin).toVector3()));
+            this.footprintMin = a.getMinimum(b);
+            this.footprintMax = a.getMaximum(b);
+
+            this.playerSpawnOffset = rotate(plan.playerSpawnOffset);
+            for (Map.Entry<SpawnPoint, Vector> entry : plan.spawnPointOffsets.entrySet()) {
+                spawnPointOffsets.put(entry.getKey(), rotate(entry.getValue()));
+            }
+        }
+
+        private Vector rotate(Vector offset) {
+            if (rotation == 0) {
+                return offset;
+            }
+            Vector3 rotated = transform.apply(Vector3.at(offset.getX(), offset.getY(), offset.getZ()));
+            return new Vector(Math.round(rotated.getX() * 1000) / 1000.0, rotated.getY(), Math.round(rotated.getZ() * 1000) / 1000.0);
+        }
+
+        public int getRotation() {
+            return rotation;
+        }
+
+        /**
+         * 取得已套用旋轉的 ClipboardHolder，可重複用於多次貼上
+         * @return ClipboardHolder
+         */
+        public ClipboardHolder getHolder() {
+            return holder;
+        }
+
+        /**
+         * 計算貼上目標位置
+         * @param location 結構中心要對齊的位置
+         * @return 貼上目標
+         */
+        public BlockVector3 getPasteTarget(Location location) {
+            return BlockVector3.at(location.getBlockX(), location.getBlockY(), location.getBlockZ()).add(pasteOffset);
+        }
+
+        /**
+         * 計算貼上後結構範圍的最小座標
+         * @param location 結構中心要對齊的位置
+         * @return 最小座標
+         */
+        public BlockVector3 getFootprintMin(Location location) {
+            return getPasteTarget(location).add(footprintMin);
+        }
+
+        /**
+         * 計算貼上後結構範圍的最大座標
+         * @param location 結構中心要對齊的位置
+         * @return 最大座標
+         */
+        public BlockVector3 getFootprintMax(Location location) {
+            return getPasteTarget(location).add(footprintMax);
+        }
+
+        /**
+         * 計算玩家出生位置
+         * @param baseLocation 結構貼上位置
+         * @return 玩家出生位置
+         */
+        public Location getPlayerSpawnLocation(Location baseLocation) {
+            return baseLocation.clone().add(playerSpawnOffset);
+        }
+
+        /**
+         * 計算怪物生成位置
+         * @param spawnPoint 生成點
+         * @param baseLocation 結構貼上位置
+         * @return 怪物生成位置，生成點座標無效時返回 null
+         */
+        public Location getSpawnPointLocation(SpawnPoint spawnPoint, Location baseLocation) {
+            Vector offset = spawnPointOffsets.get(spawnPoint);
+            if (offset == null) {
+                return null;
+            }
+            return baseLocation.clone().add(offset);
+        }
+    }
+
+    private static final Vector ZERO = new Vector(0, 0, 0);
+
+    private final SchemCache.Entry entry;
+    private final List<SpawnPoint> spawnPoints;
+    private final Vector playerSpawnOffset;
+    private final Map<SpawnPoint, Vector> spawnPointOffsets = new IdentityHashMap<>();
+    private final Map<SpawnPoint, String> spawnPointLocations = new IdentityHashMap<>();
+    private final Variant[] variants = new Variant[4];
+
+    private PlacementPlan(SchemCache.Entry entry, String playerSpawnPoint, List<SpawnPoint> spawnPoints) {
+        this.entry = entry;
+        this.spawnPoints = spawnPoints;
+
+        Vector center = entry.getCenterPoint();
+        Vector playerOffset = offset(center, playerSpawnPoint);
+        this.playerSpawnOffset = playerOffset != null ? playerOffset : ZERO;
+        for (SpawnPoint spawnPoint : spawnPoints) {
+            Vector offset = offset(center, spawnPoint.getLocation());
+            if (offset != null) {
+                spawnPointOffsets.put(spawnPoint, offset);
+            }
+            spawnPointLocations.put(spawnPoint, spawnPoint.getLocation());
+        }
+    }
+
+    /**
+     * 編譯放置計畫
+     * @param entry 結構快取項目
+     * @param playerSpawnPoint 玩家出生點（結構儲存時的座標）
+     * @param spawnPoints 怪物生成點列表
+     * @return 放置計畫
+     */
+    public static PlacementPlan compile(SchemCache.Entry entry, String playerSpawnPoint, List<SpawnPoint> spawnPoints) {
+        return new PlacementPlan(entry, playerSpawnPoint, spawnPoints);
+    }
+
+    /**
+     * 計算座標相對於結構中心的偏移，結構沒有紀錄中心點時不偏移
+     */
+    private static Vector offset(Vector center, String location) {
+        if (center == null) {
+            return ZERO;
+        }
+        Location point = LocationUtils.stringToLocation(null, location);
+        if (point == null) {
+            return null;
+        }
+        return point.toVector().subtract(center);
+    }
+
+    private static BlockVector3 round(Vector3 vector) {
+        return BlockVector3.at(Math.round(vector.getX()), Math.round(vector.getY()), Math.round(vector.getZ()));
+    }
+
+    /**
+     * 檢查計畫是否仍然對應指定的結構與生成點
+     * @param entry 結構快取項目
+     * @param spawnPoints 怪物生成點列表
+     * @return 是否有效
+     */
+    public boolean isValidFor(SchemCache.Entry entry, List<SpawnPoint> spawnPoints) {
+        if (this.entry != entry || this.spawnPoints != spawnPoints || spawnPointLocations.size() != spawnPoints.size()) {
+            return false;
+        }
+        for (SpawnPoint spawnPoint : spawnPoints) {
+            if (!spawnPointLocations.containsKey(spawnPoint)
+                    || !Objects.equals(spawnPointLocations.get(spawnPoint), spawnPoint.getLocation())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 取得指定旋轉角度的放置資料，第一次使用時才計算
+     * @param rotation 旋轉角度，必須是 90 的倍數
+     * @return 放置資料
+     */
+    public synchronized Variant getVariant(int rotation) {
+        int normalized = ((rotation % 360) + 360) % 360;
+        if (normalized % 90 != 0) {
+            throw new IllegalArgumentException("Rotation must be a multiple of 90: " + rotation);
+        }
+        int index = normalized / 90;
+        if (variants[index] == null) {
+            variants[index] = new Variant(this, normalized);
+        }
+        return variants[index];
+    }
+
+    public SchemCache.Entry getEntry() {
+        return entry;
+    }
+}
@@ -4,69 +4,59 @@ import com.fastasyncworldedit.core.FaweAPI;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormats;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.session.ClipboardHolder;
 
 import io.github.cy3902.mcroguelike.MCRogueLike;
 
 import org.bukkit.Location;
-import org.bukkit.Bukkit;
 import org.bukkit.World;
+import org.bukkit.util.Vector;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class Schem {
     private final String name;
     private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
     private final File file;
+    private final SchemCache.Entry entry;
     private Clipboard clipboard;
     private Consumer<Boolean> pasteCallback;
     private World world;
     private Location centerPoint;
 
-    public Schem(String name, File file, World world) {
+    private Schem(String name, File file, World world, SchemCache.Entry entry) {
         this.name = name;
         this.file = file;
         this.world = world;
-        loadSchematic(world);
+        this.entry = entry;
+        if (entry != null) {
+            this.clipboard = entry.getClipboard();
+            Vector center = entry.getCenterPoint();
+            if (center != null) {
+                this.centerPoint = center.toLocation(world);
+            }
+        }
     }
 
-    public void setPasteCallback(Consumer<Boolean> callback) {
-        this.pasteCallback = callback;
+    /**
+     * 非同步載入結構，檔案解析在結構工作執行緒進行，不會阻塞伺服器主執行緒
+     * @param name 結構名稱
+     * @param world 世界
+     * @return 載入完成的結構，檔案不存在或解析失敗時 Clipboard 為 null
+     */
+    public static CompletableFuture<Schem> loadAsync(String name, World world) {
+        MCRogueLike mcroguelike = MCRogueLike.getInstance();
+        return mcroguelike.getSchemLoader().load(name)
+                .thenApply(entry -> new Schem(name, SchemCache.getSchemFile(name), world, entry));
     }
 
-    private void loadSchematic(World world) {
-        try {
-            ClipboardFormat format = ClipboardFormats.findByFile(file);
-            if (format != null) {
-                try (ClipboardReader reader = format.getReader(new FileInputStream(file))) {
-                    clipboard = reader.read();
-                }
-            }
-            String location = mcroguelike.getSql().select("SELECT center_x, center_y, center_z FROM mcroguelike_schem WHERE name = ?", new String[] { name });
-            if (location != null) {
-                String[] parts = location.split(",");
-                if (parts.length == 3) {
-                    centerPoint = new Location(
-                        world,
-                        Double.parseDouble(parts[0]),
-                        Double.parseDouble(parts[1]),
-                        Double.parseDouble(parts[2])
-                    );
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public void setPasteCallback(Consumer<Boolean> callback) {
+        this.pasteCallback = callback;
     }
 
     /**
@@ -74,72 +64,63 @@ public class Schem {
      * @return 結構中心點
      */
     public BlockVector3 calculateCenterPoint() {
-        if (clipboard == null) {
+        if (entry == null) {
             return null;
         }
-    
-        Region region = clipboard.getRegion();
-        BlockVector3 min = region.getMinimumPoint();
-        BlockVector3 max = region.getMaximumPoint();
-    
-        // 計算幾何中心點（注意：取整數）
-        int centerX = (min.getBlockX() + max.getBlockX()) / 2;
-        int centerY = min.getBlockY(); // 根據你的需求，通常以最低Y為基準
-        int centerZ = (min.getBlockZ() + max.getBlockZ()) / 2;
-    
-        return BlockVector3.at(centerX, centerY, centerZ);
+        return entry.getRegionCenter();
     }
 
-
-
-
-    
-
-    public void paste(Location location) {
-        if (clipboard == null) {
-            if (pasteCallback != null) {
-                pasteCallback.accept(false);
-            }
-            return;
+    /**
+     * 貼上結構，交由貼上排程器在獨立執行緒進行，結果在伺服器主執行緒回報
+     * @param location 貼上位置
+     * @return 是否貼上成功
+     */
+    public CompletableFuture<Boolean> paste(Location location) {
+        BlockVector3 centerPoint = calculateCenterPoint();
+        if (centerPoint == null) {
+            return paste(location, null, null);
         }
+        BlockVector3 pasteLocation = BlockVector3.at(
+            location.getBlockX() - centerPoint.getBlockX(),
+            location.getBlockY() - centerPoint.getBlockY(),
+            location.getBlockZ() - centerPoint.getBlockZ()
+        );
+        return paste(location, new ClipboardHolder(clipboard), pasteLocation);
+    }
 
-        Bukkit.getScheduler().runTaskAsynchronously(Bukkit.getPluginManager().getPlugins()[0], () -> {
-            try (EditSession editSession = WorldEdit.getInstance().newEditSession(FaweAPI.getWorld(location.getWorld().getName()))) {
-                BlockVector3 centerPoint = calculateCenterPoint();
-                if (centerPoint == null) {
-                    if (pasteCallback != null) {
-                        pasteCallback.accept(false);
-                    }
-                    return;
-                }
+    /**
+     * 依照預先編譯的放置計畫貼上結構
+     * @param location 貼上位置
+     * @param variant 放置計畫的旋轉版本
+     * @return 是否貼上成功
+     */
+    public CompletableFuture<Boolean> paste(Location location, PlacementPlan.Variant variant) {
+        return paste(location, variant.getHolder(), variant.getPasteTarget(location));
+    }
 
-                BlockVector3 pasteLocation = BlockVector3.at(
-                    location.getBlockX() - centerPoint.getBlockX(),
-                    location.getBlockY() - centerPoint.getBlockY(),
-                    location.getBlockZ() - centerPoint.getBlockZ()
-                );
-                
-                Operation operation = new ClipboardHolder(clipboard)
-                        .createPaste(editSession)
-                        .to(pasteLocation)
-                        .build();
-                
-                Operations.complete(operation);
-                
-                if (pasteCallback != null) {
-                    Bukkit.getScheduler().runTask(Bukkit.getPluginManager().getPlugins()[0], () -> {
-                        pasteCallback.accept(true);
-                    });
+    private CompletableFuture<Boolean> paste(Location location, ClipboardHolder holder, BlockVector3 pasteLocation) {
+        CompletableFuture<Boolean> result;
+        if (clipboard == null || holder == null) {
+            result = CompletableFuture.completedFuture(false);
+        } else {
+            String worldName = location.getWorld().getName();
+            result = mcroguelike.getPasteScheduler().submit(worldName, () -> {
+                try (EditSession editSession = WorldEdit.getInstance().newEditSession(FaweAPI.getWorld(worldName))) {
+                    Operation operation = holder
+                            .createPaste(editSession)
+                            .to(pasteLocation)
+                            .build();
+
+                    Operations.complete(operation);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
-                if (pasteCallback != null) {
-                    Bukkit.getScheduler().runTask(Bukkit.getPluginManager().getPlugins()[0], () -> {
-                        pasteCallback.accept(false);
-                    });
-                }
-            }
-        });
+                return true;
+            });
+        }
+
+        if (pasteCallback != null) {
+            result.thenAccept(pasteCallback);
+        }
+        return result;
     }
 
     
@@ -155,6 +136,14 @@ public class Schem {
         return clipboard;
     }
 
+    /**
+     * 取得結構的快取項目
+     * @return 快取項目，解析失敗時為 null
+     */
+    public SchemCache.Entry getEntry() {
+        return entry;
+    }
+
     public Location getCenterPoint() {
         return centerPoint;
     }
@@ -0,0 +1,283 @@
+package io.github.cy3902.mcroguelike.schem;
+
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormats;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+
+import org.bukkit.util.Vector;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * 結構快取
+ * 以結構名稱與檔案修改時間為鍵，保存已解析的 Clipboard 與中心點，
+ * 依照 LRU 順序在超過記憶體預算時淘汰最久未使用的結構。
+ */
+public class SchemCache {
+
+    /**
+     * 每個方塊的估計記憶體大小（位元組）
+     */
+    private static final long BYTES_PER_BLOCK = 4L;
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxMemory;
+    private long usedMemory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * 快取項目，保存單一結構的解析結果
+     */
+    public static class Entry {
+        private final String name;
+        private final long lastModified;
+        private final Clipboard clipboard;
+        private final Vector centerPoint;
+        private final BlockVector3 regionCenter;
+        private final long estimatedSize;
+
+        public Entry(String name, long lastModified, Clipboard clipboard, Vector centerPoint) {
+            this.name = name;
+            this.lastModified = lastModified;
+            this.clipboard = clipboard;
+            this.centerPoint = centerPoint;
+            this.regionCenter = calculateRegionCenter(clipboard);
+            this.estimatedSize = estimateSize(clipboard);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public Clipboard getClipboard() {
+            return clipboard;
+        }
+
+        /**
+         * 取得結構資料索引中紀錄的中心點，未紀錄時為 null
+         * @return 中心點
+         */
+        public Vector getCenterPoint() {
+            return centerPoint == null ? null : centerPoint.clone();
+        }
+
+        /**
+         * 取得結構區域的幾何中心（以最低 Y 為基準），貼上時以此點對齊貼上位置
+         * @return 區域中心
+         */
+        public BlockVector3 getRegionCenter() {
+            return regionCenter;
+        }
+
+        public long getEstimatedSize() {
+            return estimatedSize;
+        }
+    }
+
+    /**
+     * 建構子
+     * @param maxMemory 記憶體預算（位元組）
+     */
+    public SchemCache(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * 取得結構檔案
+     * @param name 結構名稱
+     * @return 結構檔案
+     */
+    public static File getSchemFile(String name) {
+        return new File(MCRogueLike.getInstance().getDataFolder() + "/schematics/" + name + ".schem");
+    }
+
+    /**
+     * 取得結構，若快取不存在或檔案已變更則重新解析
+     * @param name 結構名稱
+     * @return 快取項目，檔案不存在或解析失敗時返回 null
+     */
+    public Entry get(String name) {
+        File file = getSchemFile(name);
+        if (!file.exists()) {
+            invalidate(name);
+            return null;
+        }
+
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            Entry entry = entries.get(name);
+            if (entry != null && entry.getLastModified() == lastModified) {
+                hits.incrementAndGet();
+                return entry;
+            }
+        }
+
+        misses.incrementAndGet();
+        Entry loaded = load(name, file, lastModified);
+        if (loaded == null) {
+            return null;
+        }
+        put(loaded);
+        return loaded;
+    }
+
+    /**
+     * 取得仍然有效的快取項目，不觸發解析
+     * @param name 結構名稱
+     * @return 快取項目，不存在或檔案已變更時返回 null
+     */
+    public Entry getIfFresh(String name) {
+        File file = getSchemFile(name);
+        if (!file.exists()) {
+            return null;
+        }
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            Entry entry = entries.get(name);
+            if (entry != null && entry.getLastModified() == lastModified) {
+                hits.incrementAndGet();
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 僅查詢快取，不觸發解析
+     * @param name 結構名稱
+     * @return 快取項目，不存在時返回 null
+     */
+    public synchronized Entry peek(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * 移除指定結構的快取
+     * @param name 結構名稱
+     */
+    public synchronized void invalidate(String name) {
+        Entry removed = entries.remove(name);
+        if (removed != null) {
+            usedMemory -= removed.getEstimatedSize();
+        }
+    }
+
+    /**
+     * 清空所有快取
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedMemory = 0;
+    }
+
+    private synchronized void put(Entry entry) {
+        Entry previous = entries.put(entry.getName(), entry);
+        if (previous != null) {
+            usedMemory -= previous.getEstimatedSize();
+        }
+        usedMemory += entry.getEstimatedSize();
+        evict(entry.getName());
+    }
+
+    /**
+     * 依 LRU 順序淘汰結構直到符合記憶體預算，剛放入的結構不會被淘汰
+     * @param keep 保留的結構名稱
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (usedMemory > maxMemory && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            usedMemory -= eldest.getValue().getEstimatedSize();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 從檔案與結構資料索引載入結構
+     */
+    private Entry load(String name, File file, long lastModified) {
+        Clipboard clipboard = null;
+        try {
+            ClipboardFormat format = ClipboardFormats.findByFile(file);
+            if (format != null) {
+                try (ClipboardReader reader = format.getReader(new FileInputStream(file))) {
+                    clipboard = reader.read();
+                }
+            }
+        } catch (IOException e) {
+            mcroguelike.getLogger().log(Level.SEVERE, "Failed to read schematic: " + file.getName(), e);
+        }
+        if (clipboard == null) {
+            return null;
+        }
+
+        // 中心點來自結構資料索引，檔案變更過時順便更新尺寸與校驗碼
+        SchemIndex index = mcroguelike.getSchemIndex();
+        SchemIndex.Meta meta = index.get(name);
+        if (meta == null || !meta.isFresh(lastModified)) {
+            meta = index.refresh(name, file, clipboard, lastModified);
+        }
+        Vector centerPoint = meta.getCenterPoint();
+        return new Entry(name, lastModified, clipboard, centerPoint);
+    }
+
+    private static BlockVector3 calculateRegionCenter(Clipboard clipboard) {
+        Region region = clipboard.getRegion();
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        return BlockVector3.at((min.getBlockX() + max.getBlockX()) / 2, min.getBlockY(), (min.getBlockZ() + max.getBlockZ()) / 2);
+    }
+
+    private static long estimateSize(Clipboard clipboard) {
+        BlockVector3 dimensions = clipboard.getDimensions();
+        return (long) dimensions.getBlockX() * dimensions.getBlockY() * dimensions.getBlockZ() * BYTES_PER_BLOCK;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedMemory() {
+        return usedMemory;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+}
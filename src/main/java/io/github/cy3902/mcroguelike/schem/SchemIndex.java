@@ -0,0 +1,334 @@
+package io.github.cy3902.mcroguelike.schem;
+
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
+
+import org.bukkit.util.Vector;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * 結構資料索引
+ * 在 schematics 資料夾中每個 .schem 旁保存一個 .meta.json，記錄中心點、尺寸、方塊數量與檔案校驗碼。
+ * 啟動時一次讀入記憶體，載入結構時不再查詢資料庫。
+ */
+public class SchemIndex {
+    private static final String META_SUFFIX = ".meta.json";
+    private static final String LEGACY_TABLE = "mcroguelike_schem";
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final Map<String, Meta> metas = new ConcurrentHashMap<>();
+    private final Set<String> unmigrated = ConcurrentHashMap.newKeySet();  // 舊中心點尚未搬移、不可寫入資料檔的結構
+
+    /**
+     * 單一結構的資料
+     */
+    public static class Meta {
+        private final String name;
+        private final Vector centerPoint;
+        private final BlockVector3 dimensions;
+        private final long blockCount;
+        private final String checksum;
+        private final long lastModified;
+
+        /**
+         * 建構子
+         * @param name 結構名稱
+         * @param centerPoint 中心點（Y 為結構最低點），未紀錄時為 null
+         * @param dimensions 結構尺寸，未知時為 null
+         * @param blockCount 非空氣方塊數量，未知時為 -1
+         * @param checksum 檔案的 CRC32 校驗碼，未知時為 null
+         * @param lastModified 計算資料時檔案的修改時間，未知時為 0
+         */
+        public Meta(String name, Vector centerPoint, BlockVector3 dimensions, long blockCount, String checksum, long lastModified) {
+            this.name = name;
+            this.centerPoint = centerPoint;
+            this.dimensions = dimensions;
+            this.blockCount = blockCount;
+            this.checksum = checksum;
+            this.lastModified = lastModified;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Vector getCenterPoint() {
+            return centerPoint == null ? null : centerPoint.clone();
+        }
+
+        public BlockVector3 getDimensions() {
+            return dimensions;
+        }
+
+        public long getBlockCount() {
+            return blockCount;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * 檢查資料是否對應目前的結構檔案
+         * @param fileLastModified 檔案修改時間
+         * @return 是否為最新
+         */
+        public boolean isFresh(long fileLastModified) {
+            return dimensions != null && checksum != null && lastModified == fileLastModified;
+        }
+
+        private JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("name", name);
+            if (centerPoint != null) {
+                JSONObject center = new JSONObject();
+                center.put("x", centerPoint.getX());
+                center.put("y", centerPoint.getY());
+                center.put("z", centerPoint.getZ());
+                json.put("center", center);
+            }
+            if (dimensions != null) {
+                JSONObject size = new JSONObject();
+                size.put("x", dimensions.getBlockX());
+                size.put("y", dimensions.getBlockY());
+                size.put("z", dimensions.getBlockZ());
+                json.put("dimensions", size);
+            }
+            json.put("block_count", blockCount);
+            if (checksum != null) {
+                json.put("checksum", checksum);
+            }
+            json.put("last_modified", lastModified);
+            return json;
+        }
+
+        private static Meta fromJson(String name, JSONObject json) {
+            Vector center = null;
+            JSONObject centerJson = json.optJSONObject("center");
+            if (centerJson != null) {
+                center = new Vector(centerJson.getDouble("x"), centerJson.getDouble("y"), centerJson.getDouble("z"));
+            }
+            BlockVector3 dimensions = null;
+            JSONObject sizeJson = json.optJSONObject("dimensions");
+            if (sizeJson != null) {
+                dimensions = BlockVector3.at(sizeJson.getInt("x"), sizeJson.getInt("y"), sizeJson.getInt("z"));
+            }
+            return new Meta(
+                name,
+                center,
+                dimensions,
+                json.optLong("block_count", -1),
+                json.optString("checksum", null),
+                json.optLong("last_modified", 0)
+            );
+        }
+    }
+
+    /**
+     * 讀入 schematics 資料夾中所有結構資料，
+     * 沒有資料檔的結構會從舊的 mcroguelike_schem 資料表搬移中心點，
+     * 無法讀取舊資料表時只保留在記憶體中，下次啟動時重新搬移
+     */
+    public void load() {
+        metas.clear();
+        unmigrated.clear();
+        File[] files = getSchemDirectory().listFiles((dir, fileName) -> fileName.endsWith(".schem"));
+        if (files == null) {
+            return;
+        }
+
+        Map<String, Vector> legacy = null;
+        boolean legacyRead = false;
+        for (File file : files) {
+            String name = file.getName().substring(0, file.getName().length() - ".schem".length());
+            File metaFile = getMetaFile(name);
+            if (metaFile.exists()) {
+                try {
+                    String content = new String(Files.readAllBytes(metaFile.toPath()), StandardCharsets.UTF_8);
+                    metas.put(name, Meta.fromJson(name, new JSONObject(content)));
+                    continue;
+                } catch (IOException | JSONException e) {
+                    mcroguelike.getLogger().log(Level.WARNING, "Failed to read schematic metadata: " + metaFile.getName(), e);
+                }
+            }
+
+            if (!legacyRead) {
+                legacy = readLegacyCenters();
+                legacyRead = true;
+            }
+            Meta meta = new Meta(name, legacy != null ? legacy.get(name) : null, null, -1, null, 0);
+            metas.put(name, meta);
+            if (legacy != null) {
+                save(meta);
+            } else {
+                unmigrated.add(name);
+            }
+        }
+        mcroguelike.info("Loaded metadata for " + metas.size() + " schematics", Level.INFO);
+    }
+
+    /**
+     * 取得結構資料
+     * @param name 結構名稱
+     * @return 結構資料，不存在時返回 null
+     */
+    public Meta get(String name) {
+        return metas.get(name);
+    }
+
+    /**
+     * 依照解析後的 Clipboard 重新計算結構資料並寫入資料檔，保留原本紀錄的中心點
+     * @param name 結構名稱
+     * @param file 結構檔案
+     * @param clipboard 解析後的 Clipboard
+     * @param lastModified 檔案修改時間
+     * @return 新的結構資料
+     */
+    public Meta refresh(String name, File file, Clipboard clipboard, long lastModified) {
+        Meta previous = metas.get(name);
+        Vector center = previous != null ? previous.getCenterPoint() : null;
+        return put(new Meta(name, center, clipboard.getDimensions(), countBlocks(clipboard), checksum(file), lastModified));
+    }
+
+    /**
+     * 記錄新儲存的結構資料並寫入資料檔
+     * @param name 結構名稱
+     * @param centerPoint 中心點（Y 為結構最低點）
+     * @param dimensions 結構尺寸
+     * @param blockCount 非空氣方塊數量
+     * @return 新的結構資料
+     */
+    public Meta update(String name, Vector centerPoint, BlockVector3 dimensions, long blockCount) {
+        unmigrated.remove(name);
+        File file = SchemCache.getSchemFile(name);
+        return put(new Meta(name, centerPoint, dimensions, blockCount, checksum(file), file.lastModified()));
+    }
+
+    /**
+     * 移除結構資料與資料檔
+     * @param name 結構名稱
+     */
+    public void remove(String name) {
+        metas.remove(name);
+        unmigrated.remove(name);
+        File metaFile = getMetaFile(name);
+        if (metaFile.exists() && !metaFile.delete()) {
+            mcroguelike.getLogger().log(Level.WARNING, "Failed to delete schematic metadata: " + metaFile.getName());
+        }
+    }
+
+    /**
+     * 獲取所有結構資料
+     * @return 結構名稱與資料
+     */
+    public Map<String, Meta> getAll() {
+        return new TreeMap<>(metas);
+    }
+
+    private Meta put(Meta meta) {
+        metas.put(meta.getName(), meta);
+        if (!unmigrated.contains(meta.getName())) {
+            save(meta);
+        }
+        return meta;
+    }
+
+    private void save(Meta meta) {
+        File metaFile = getMetaFile(meta.getName());
+        try {
+            Files.write(metaFile.toPath(), meta.toJson().toString(2).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            mcroguelike.getLogger().log(Level.WARNING, "Failed to write schematic metadata: " + metaFile.getName(), e);
+        }
+    }
+
+    /**
+     * 一次讀出舊資料表中的所有中心點，資料表不存在時返回空的結果
+     * @return 結構名稱與中心點，資料庫無法連線或讀取失敗時返回 null
+     */
+    private Map<String, Vector> readLegacyCenters() {
+        Map<String, Vector> centers = new HashMap<>();
+        AbstractSQL sql = mcroguelike.getSql();
+        if (sql == null || !sql.isConnectionValid()) {
+            return null;
+        }
+        try {
+            sql.withConnection(connection -> {
+                try (ResultSet tables = connection.getMetaData().getTables(null, null, LEGACY_TABLE, null)) {
+                    if (!tables.next()) {
+                        return null;
+                    }
+                }
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT name, center_x, center_y, center_z FROM " + LEGACY_TABLE)) {
+                    while (rs.next()) {
+                        centers.put(rs.getString(1), new Vector(rs.getDouble(2), rs.getDouble(3), rs.getDouble(4)));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            mcroguelike.getLogger().log(Level.WARNING, "Failed to migrate legacy schematic centers", e);
+            return null;
+        }
+        return centers;
+    }
+
+    private static long countBlocks(Clipboard clipboard) {
+        long count = 0;
+        for (BlockVector3 position : clipboard.getRegion()) {
+            if (!clipboard.getBlock(position).getBlockType().getMaterial().isAir()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String checksum(File file) {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            mcroguelike.getLogger().log(Level.WARNING, "Failed to checksum schematic: " + file.getName(), e);
+            return null;
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static File getSchemDirectory() {
+        return SchemCache.getSchemFile("").getParentFile();
+    }
+
+    private static File getMetaFile(String name) {
+        return new File(getSchemDirectory(), name + META_SUFFIX);
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.cy3902.mcroguelike.schem;
+
+import io.github.cy3902.mcroguelike.MCRogueLike;
+
+import org.bukkit.Bukkit;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * 結構載入器
+ * 使用固定大小的工作執行緒池在背景解析結構，並記錄每個結構的載入狀態
+ */
+public class SchemLoader {
+
+    /**
+     * 結構載入狀態
+     */
+    public enum State {
+        PENDING,    // 等待載入
+        LOADING,    // 載入中
+        READY,      // 已載入
+        FAILED      // 載入失敗
+    }
+
+    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
+    private final SchemCache cache;
+    private final ExecutorService executor;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    private final Map<String, Long> loadTimes = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<SchemCache.Entry>> inFlight = new ConcurrentHashMap<>();
+    private final Executor mainThreadExecutor;
+
+    private final AtomicInteger warmUpCompleted = new AtomicInteger();
+    private volatile int warmUpTotal;
+    private volatile long warmUpStartTime;
+    private volatile long warmUpDuration = -1;
+
+    /**
+     * 建構子
+     * @param cache 結構快取
+     * @param threads 工作執行緒數量
+     */
+    public SchemLoader(SchemCache cache, int threads) {
+        this.cache = cache;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MCRogueLike-Schem-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.mainThreadExecutor = runnable -> {
+            if (Bukkit.isPrimaryThread()) {
+                runnable.run();
+            } else {
+                Bukkit.getScheduler().runTask(mcroguelike, runnable);
+            }
+        };
+    }
+
+    /**
+     * 非同步載入結構，快取有效時直接完成，否則交由工作執行緒解析
+     * 同一結構正在載入時會共用同一個 Future，不會重複解析
+     * @param name 結構名稱
+     * @return 快取項目，檔案不存在或解析失敗時為 null
+     */
+    public CompletableFuture<SchemCache.Entry> load(String name) {
+        SchemCache.Entry entry = cache.getIfFresh(name);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(entry);
+        }
+        CompletableFuture<SchemCache.Entry> future = new CompletableFuture<>();
+        CompletableFuture<SchemCache.Entry> existing = inFlight.putIfAbsent(name, future);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                SchemCache.Entry loaded = loadNow(name);
+                inFlight.remove(name, future);
+                future.complete(loaded);
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(name, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 預熱結構快取，在背景平行解析所有指定的結構
+     * @param names 結構名稱列表
+     */
+    public void warmUp(Collection<String> names) {
+        Set<String> structures = new LinkedHashSet<>();
+        for (String name : names) {
+            if (name != null && !name.isEmpty()) {
+                structures.add(name);
+            }
+        }
+
+        warmUpTotal = structures.size();
+        warmUpCompleted.set(0);
+        warmUpStartTime = System.currentTimeMillis();
+        warmUpDuration = -1;
+
+        if (structures.isEmpty()) {
+            warmUpDuration = 0;
+            return;
+        }
+
+        mcroguelike.info("Preloading " + structures.size() + " schematics...", Level.INFO);
+        for (String name : structures) {
+            states.put(name, State.PENDING);
+            load(name).whenComplete((entry, error) -> {
+                State state = entry != null ? State.READY : State.FAILED;
+                states.put(name, state);
+                int done = warmUpCompleted.incrementAndGet();
+                mcroguelike.info("Preloaded schematic " + name + " (" + done + "/" + warmUpTotal + ", "
+                        + state + ", " + loadTimes.getOrDefault(name, 0L) + " ms)", Level.INFO);
+                if (done == warmUpTotal) {
+                    warmUpDuration = System.currentTimeMillis() - warmUpStartTime;
+                    mcroguelike.info("Schematic preloading finished in " + warmUpDuration + " ms", Level.INFO);
+                }
+            });
+        }
+    }
+
+    /**
+     * 在目前執行緒解析結構並更新狀態
+     * @param name 結構名稱
+     * @return 快取項目，檔案不存在或解析失敗時為 null
+     */
+    private SchemCache.Entry loadNow(String name) {
+        states.put(name, State.LOADING);
+        long start = System.nanoTime();
+        SchemCache.Entry entry = null;
+        try {
+            entry = cache.get(name);
+        } catch (Exception e) {
+            mcroguelike.getLogger().log(Level.SEVERE, "Failed to preload schematic: " + name, e);
+        }
+        loadTimes.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        states.put(name, entry != null ? State.READY : State.FAILED);
+        return entry;
+    }
+
+    /**
+     * 獲取在伺服器主執行緒執行任務的 Executor
+     * @return 主執行緒 Executor
+     */
+    public Executor getMainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    /**
+     * 關閉工作執行緒池
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 獲取結構的載入狀態
+     * @param name 結構名稱
+     * @return 載入狀態，未登記時返回 null
+     */
+    public State getState(String name) {
+        return states.get(name);
+    }
+
+    /**
+     * 檢查結構是否已經載入完成
+     * @param name 結構名稱
+     * @return 是否已載入
+     */
+    public boolean isReady(String name) {
+        return states.get(name) == State.READY && cache.peek(name) != null;
+    }
+
+    /**
+     * 獲取所有結構的載入狀態
+     * @return 結構名稱與狀態
+     */
+    public Map<String, State> getStates() {
+        return new TreeMap<>(states);
+    }
+
+    /**
+     * 獲取結構的載入耗時
+     * @param name 結構名稱
+     * @return 耗時（毫秒），未載入時返回 -1
+     */
+    public long getLoadTime(String name) {
+        return loadTimes.getOrDefault(name, -1L);
+    }
+
+    public int getWarmUpCompleted() {
+        return warmUpCompleted.get();
+    }
+
+    public int getWarmUpTotal() {
+        return warmUpTotal;
+    }
+
+    /**
+     * 獲取預熱總耗時
+     * @return 耗時（毫秒），尚未完成時返回 -1
+     */
+    public long getWarmUpDuration() {
+        return warmUpDuration;
+    }
+}
@@ -0,0 +1,306 @@
+package io.github.cy3902.mcroguelike.sql;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * 資料庫連線的健康檢查與斷路器
+ * 所有借用連線的操作都經過此類別計時與計算錯誤，連續發生連線錯誤時開啟斷路器，
+ * 之後的操作立即失敗而不等待逾時，由背景執行緒以指數退避重新連線，成功後關閉斷路器。
+ */
+public class DatabaseHealth {
+
+    /**
+     * 斷路器狀態
+     */
+    public enum State {
+        CLOSED,     // 正常運作
+        OPEN,       // 資料庫無法使用，拒絕所有操作
+        HALF_OPEN   // 正在嘗試重新連線
+    }
+
+    /**
+     * 借用連線的操作
+     * @param <T> 回傳類型
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+
+    private final AbstractSQL sql;
+    private volatile State state = State.CLOSED;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long backoffMillis = MIN_BACKOFF_MILLIS;
+    private volatile long nextAttempt;
+    private volatile long lastCheck;
+    private ScheduledExecutorService scheduler;
+
+    private volatile int validationTimeoutSeconds = 5;
+    private volatile int failureThreshold = 3;
+    private volatile long checkIntervalMillis = 30000;
+    private volatile long maxBackoffMillis = 60000;
+
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong failedReconnects = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private volatile String lastError;
+
+    /**
+     * 重新連線後套用結構的執行緒，斷路器尚未關閉時只允許此執行緒操作資料庫
+     */
+    private volatile Thread schemaThread;
+
+    /**
+     * 建構子
+     * @param sql 資料庫
+     */
+    public DatabaseHealth(AbstractSQL sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * 開始定期檢查連線；未開始時斷路器開啟後不會自動關閉
+     * @param checkIntervalSeconds 連線正常時的檢查間隔（秒）
+     * @param validationTimeoutSeconds 驗證連線的逾時（秒）
+     * @param failureThreshold 開啟斷路器前允許的連續連線錯誤次數
+     * @param maxBackoffSeconds 重新連線的最長間隔（秒）
+     */
+    public void start(int checkIntervalSeconds, int validationTimeoutSeconds, int failureThreshold, int maxBackoffSeconds) {
+        stop();
+        this.checkIntervalMillis = Math.max(1, checkIntervalSeconds) * 1000L;
+        this.validationTimeoutSeconds = Math.max(1, validationTimeoutSeconds);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.maxBackoffMillis = Math.max(MIN_BACKOFF_MILLIS, maxBackoffSeconds * 1000L);
+        lastCheck = System.currentTimeMillis();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MCRogueLike-DatabaseHealth");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::check, 1, 1, TimeUnit.SECONDS);
+        synchronized (this) {
+            scheduler = executor;
+        }
+    }
+
+    /**
+     * 停止定期檢查並等待進行中的檢查結束，關閉連線前呼叫
+     */
+    public void stop() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = scheduler;
+            scheduler = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(validationTimeoutSeconds + 1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 執行借用連線的操作並記錄延遲與錯誤，斷路器開啟時直接拋出 {@link DatabaseUnavailableException}
+     * @param call 操作
+     * @param <T> 回傳類型
+     * @return 操作的結果
+     * @throws SQLException 資料庫錯誤
+     */
+    public <T> T call(SqlCall<T> call) throws SQLException {
+        if (state != State.CLOSED && Thread.currentThread() != schemaThread) {
+            rejected.incrementAndGet();
+            throw new DatabaseUnavailableException("Database is unavailable, waiting to reconnect");
+        }
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            record(start);
+            consecutiveFailures.set(0);
+            return result;
+        } catch (SQLException e) {
+            record(start);
+            errors.incrementAndGet();
+            lastError = e.getMessage();
+            if (isConnectionFailure(e) && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                trip(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private void record(long start) {
+        long latency = System.nanoTime() - start;
+        operations.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * 判斷錯誤是否來自連線本身，語法或約束錯誤不會開啟斷路器
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String sqlState = e.getSQLState();
+        return sqlState != null && sqlState.startsWith("08");
+    }
+
+    /**
+     * 開啟斷路器並排定第一次重新連線
+     */
+    private synchronized void trip(String reason) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        state = State.OPEN;
+        backoffMillis = MIN_BACKOFF_MILLIS;
+        nextAttempt = System.currentTimeMillis() + backoffMillis;
+        sql.getLogger().log(Level.WARNING, "Database connection lost, pausing database operations: " + reason);
+    }
+
+    /**
+     * 連線正常時依照間隔驗證連線，斷路器開啟時依照退避時間嘗試重新連線
+     */
+    private void check() {
+        long now = System.currentTimeMillis();
+        if (state == State.CLOSED) {
+            if (now - lastCheck < checkIntervalMillis) {
+                return;
+            }
+            lastCheck = now;
+            if (sql.isConnectionValid(validationTimeoutSeconds)) {
+                return;
+            }
+            // 驗證失敗時先嘗試重新連線一次，仍然失敗才開啟斷路器；結構套用完成前暫停其他操作
+            state = State.HALF_OPEN;
+            boolean reconnected = reconnect();
+            state = State.CLOSED;
+            if (!reconnected) {
+                trip("connection validation failed");
+            }
+            return;
+        }
+        if (now < nextAttempt) {
+            return;
+        }
+        state = State.HALF_OPEN;
+        if (reconnect()) {
+            consecutiveFailures.set(0);
+            lastCheck = now;
+            state = State.CLOSED;
+            sql.getLogger().log(Level.INFO, "Database connection restored");
+        } else {
+            backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+            nextAttempt = System.currentTimeMillis() + backoffMillis;
+            state = State.OPEN;
+        }
+    }
+
+    private boolean reconnect() {
+        try {
+            sql.connect();
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+        }
+        if (sql.isConnectionValid(validationTimeoutSeconds) && applySchema()) {
+            reconnects.incrementAndGet();
+            return true;
+        }
+        failedReconnects.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 在新的連線上重新建立資料表並執行遷移，記憶體資料庫重新連線後會是空的資料庫
+     * @return 結構是最新版本時返回 true
+     */
+    private boolean applySchema() {
+        schemaThread = Thread.currentThread();
+        try {
+            if (sql.createTableIfNotExists()) {
+                return true;
+            }
+            lastError = "Failed to apply database schema after reconnecting";
+            return false;
+        } finally {
+            schemaThread = null;
+        }
+    }
+
+    /**
+     * 資料庫是否可以使用
+     * @return 斷路器關閉時返回 true
+     */
+    public boolean isAvailable() {
+        return state == State.CLOSED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public long getOperations() {
+        return operations.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    public long getFailedReconnects() {
+        return failedReconnects.get();
+    }
+
+    public long getAverageLatencyMicros() {
+        long count = operations.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos.get() / count);
+    }
+
+    public long getMaxLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get());
+    }
+
+    /**
+     * 獲取最近一次錯誤的訊息
+     * @return 錯誤訊息，沒有錯誤時為 null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+}
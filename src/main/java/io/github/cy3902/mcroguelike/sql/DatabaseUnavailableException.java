@@ -0,0 +1,13 @@
+package io.github.cy3902.mcroguelike.sql;
+
+import java.sql.SQLException;
+
+/**
+ * 斷路器開啟時拒絕資料庫操作所拋出的例外，不會實際連線資料庫
+ */
+public class DatabaseUnavailableException extends SQLException {
+
+    public DatabaseUnavailableException(String reason) {
+        super(reason, "08000");
+    }
+}
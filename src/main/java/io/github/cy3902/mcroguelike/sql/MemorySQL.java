@@ -0,0 +1,18 @@
+package io.github.cy3902.mcroguelike.sql;
+
+/**
+ * 記憶體資料庫，使用 SQLite 的記憶體模式，行為與 SQLite 相同但不寫入磁碟。
+ * 記憶體資料庫只存在於單一連線，查詢與寫入共用同一個連線，關閉或重新連線時資料會消失。
+ * 用於測試與效能比較，不需要資料庫檔案或 MySQL 伺服器。
+ */
+public class MemorySQL extends SQLite {
+
+    /**
+     * 建立空的記憶體資料庫並建立資料表。
+     *
+     * @param uuidStorage UUID 欄位的儲存方式
+     */
+    public MemorySQL(UuidStorage uuidStorage) {
+        super("jdbc:sqlite::memory:", false, uuidStorage);
+    }
+}
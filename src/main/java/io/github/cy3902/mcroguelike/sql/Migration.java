@@ -0,0 +1,61 @@
+package io.github.cy3902.mcroguelike.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 資料庫結構遷移
+ * 每個遷移有唯一且遞增的版本號，由 {@link SchemaMigrator} 依照版本順序在交易中執行一次
+ */
+public interface Migration {
+
+    /**
+     * 獲取遷移版本
+     * @return 版本號
+     */
+    int getVersion();
+
+    /**
+     * 獲取遷移說明
+     * @return 說明
+     */
+    String getDescription();
+
+    /**
+     * 執行遷移
+     * @param conn 資料庫連線
+     * @throws SQLException 資料庫錯誤
+     */
+    void apply(Connection conn) throws SQLException;
+
+    /**
+     * 建立依序執行多個 SQL 語句的遷移
+     * @param version 版本號
+     * @param description 說明
+     * @param statements SQL 語句
+     * @return 遷移
+     */
+    static Migration of(int version, String description, String... statements) {
+        return new Migration() {
+            @Override
+            public int getVersion() {
+                return version;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+
+            @Override
+            public void apply(Connection conn) throws SQLException {
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : statements) {
+                        stmt.execute(sql);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -1,25 +1,35 @@
 package io.github.cy3902.mcroguelike.sql;
 
-import io.github.cy3902.mcroguelike.MCRogueLike;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
 import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 /**
  * MySQL 資料庫操作類別，繼承自 AbstractsSQL。
  * 該類別用於連接 MySQL 資料庫，並創建所需的資料表。
+ * 使用 HikariCP 連線池，每個操作借用一個連線，背景查詢可以同時在多個連線上執行。
+ * 預備語句由驅動程式依連線快取，連線池重建時快取隨舊連線一起釋放。
  */
 public class MySQL extends AbstractSQL {
 
-    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
-    private static String databaseUrl;
-    private static String username;
-    private static String password;
+    private final String databaseUrl;
+    private final String username;
+    private final String password;
+    private final int poolSize;
+    private volatile HikariDataSource dataSource;
 
     /**
      * 構造函數，用於初始化 MySQL 資料庫連接信息並創建資料表。
@@ -29,101 +39,199 @@ public class MySQL extends AbstractSQL {
      * @param dbName   資料庫名稱
      * @param username 資料庫用戶名
      * @param password 資料庫密碼
+     * @param poolSize 連線池大小
+     * @param uuidStorage UUID 欄位的儲存方式
      */
-    public MySQL(String host, int port, String dbName, String username, String password) {
-        databaseUrl = "jdbc:mysql://" + host + ":" + port + "/" + dbName;
-        MySQL.username = username;
-        MySQL.password = password;
+    public MySQL(String host, int port, String dbName, String username, String password, int poolSize, UuidStorage uuidStorage) {
+        super(uuidStorage);
+        this.databaseUrl = "jdbc:mysql://" + host + ":" + port + "/" + dbName;
+        this.username = username;
+        this.password = password;
+        this.poolSize = Math.max(1, poolSize);
         connect();
         createTableIfNotExists();
+        startExecutors("MCRogueLike-MySQL", this.poolSize);
+    }
+
+    /**
+     * 建立 MySQL 連線池。
+     */
+    @Override
+    public synchronized void connect() {
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+        }
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("MCRogueLike-MySQL");
+        config.setJdbcUrl(databaseUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(1);
+        // 取得連線最多等待的時間，資料庫中斷時盡快失敗並交給斷路器處理
+        config.setConnectionTimeout(TimeUnit.SECONDS.toMillis(10));
+        // 定期檢查閒置連線並在伺服器的 wait_timeout 之前汰換，避免深夜閒置後拿到已被伺服器關閉的連線
+        config.setKeepaliveTime(TimeUnit.MINUTES.toMillis(5));
+        config.setMaxLifetime(TimeUnit.MINUTES.toMillis(30));
+        // 由驅動程式在每個連線上快取預備語句，重複的查詢不必重新解析
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        try {
+            dataSource = new HikariDataSource(config);
+        } catch (RuntimeException e) {
+            if (getHealth().isAvailable()) {
+                getLogger().log(Level.SEVERE, "Failed to create MySQL connection pool", e);
+            } else {
+                // 斷路器開啟時的重試只記錄訊息，避免每次退避都輸出完整的堆疊
+                getLogger().log(Level.WARNING, "Failed to reconnect to MySQL: " + e.getMessage());
+            }
+            dataSource = null;
+        }
+    }
+
+    @Override
+    protected <T> T doWithConnection(ConnectionCallback<T> callback) throws SQLException {
+        HikariDataSource source = dataSource;
+        if (source == null) {
+            throw new SQLNonTransientConnectionException("MySQL connection pool is not available");
+        }
+        try (Connection conn = source.getConnection()) {
+            return callback.apply(conn);
+        }
     }
 
     /**
-     * 連接到 MySQL 資料庫。
+     * 從連線池借用一個連線，使用完畢後必須關閉以歸還連線池。
+     *
+     * @return 資料庫連線，連線池無法使用時返回 null
      */
     @Override
-    public void connect() {
+    public Connection getConnection() {
         try {
-            this.connection = DriverManager.getConnection(databaseUrl, username, password);
+            return dataSource != null ? dataSource.getConnection() : null;
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
     }
 
     /**
-     * 如果資料表不存在，則創建所需的資料表。
+     * MySQL 的結構遷移。
      */
     @Override
-    public void createTableIfNotExists() {
-        // 地圖位置表格
-        String createMapLocationTableSQL = "CREATE TABLE IF NOT EXISTS mcroguelike_map_location ("
+    protected List<Migration> getMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        migrations.add(Migration.of(1, "create base tables",
+            // 地圖位置表格
+            "CREATE TABLE IF NOT EXISTS mcroguelike_map_location ("
                 + "map VARCHAR(255) NOT NULL PRIMARY KEY, "
-                + "X DOUBLE NOT NULL," 
+                + "X DOUBLE NOT NULL,"
                 + "Y DOUBLE NOT NULL,"
                 + "Z DOUBLE NOT NULL"
-                + ");";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createMapLocationTableSQL);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        // 創建隊伍路徑表格
-        String createPlayerPathTableSQL = "CREATE TABLE IF NOT EXISTS mcroguelike_party_path ("
+                + ")",
+            // 隊伍路徑表格
+            "CREATE TABLE IF NOT EXISTS mcroguelike_party_path ("
                 + "party_uuid VARCHAR(255) NOT NULL PRIMARY KEY, "
                 + "path VARCHAR(255) NOT NULL"
-                + ");";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createPlayerPathTableSQL);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        // 創建隊伍成員表格
-        String createPartyMemberTableSQL = "CREATE TABLE IF NOT EXISTS mcroguelike_party_member ("
+                + ")",
+            // 隊伍成員表格
+            "CREATE TABLE IF NOT EXISTS mcroguelike_party_member ("
                 + "party_uuid VARCHAR(255) NOT NULL, "
                 + "member_uuid VARCHAR(255) NOT NULL, "
                 + "is_leader Boolean NOT NULL DEFAULT false, "
                 + "PRIMARY KEY (party_uuid, member_uuid)"
-                + ");";
+                + ")"
+        ));
+        migrations.add(Migration.of(2, "index party members by member uuid",
+            "CREATE INDEX idx_party_member_member ON mcroguelike_party_member (member_uuid)"
+        ));
+        return migrations;
+    }
 
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createPartyMemberTableSQL);
+    @Override
+    public List<String> getPartyTableDefinitions(UuidStorage storage) {
+        String uuidType = storage == UuidStorage.BINARY ? "BINARY(16)" : "VARCHAR(255)";
+        List<String> definitions = new ArrayList<>();
+        definitions.add("CREATE TABLE IF NOT EXISTS mcroguelike_party_path ("
+            + "party_uuid " + uuidType + " NOT NULL PRIMARY KEY, "
+            + "path VARCHAR(255) NOT NULL"
+            + ")");
+        definitions.add("CREATE TABLE IF NOT EXISTS mcroguelike_party_member ("
+            + "party_uuid " + uuidType + " NOT NULL, "
+            + "member_uuid " + uuidType + " NOT NULL, "
+            + "is_leader Boolean NOT NULL DEFAULT false, "
+            + "PRIMARY KEY (party_uuid, member_uuid), "
+            + "INDEX idx_party_member_member (member_uuid)"
+            + ")");
+        return definitions;
+    }
+
+    private void execute(String sql) {
+        try {
+            withConnection(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    return stmt.execute(sql);
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError("Database update failed: " + sql, e);
         }
-        
     }
 
     /**
-     * 檢查資料庫連接是否有效。
+     * 從連線池借用一個連線並在逾時內驗證。
      *
+     * @param timeoutSeconds 逾時（秒）
      * @return 如果連接有效，則返回 true；否則返回 false
      */
     @Override
-    public boolean isConnectionValid() {
-        try {
-            return connection != null && !connection.isClosed();
+    public boolean isConnectionValid(int timeoutSeconds) {
+        HikariDataSource source = dataSource;
+        if (source == null || source.isClosed()) {
+            return false;
+        }
+        try (Connection conn = source.getConnection()) {
+            return conn.isValid(timeoutSeconds);
         } catch (SQLException e) {
-            e.printStackTrace();
             return false;
         }
     }
 
     /**
-     * 關閉資料庫連接。
+     * 等待寫入佇列完成後關閉連線池。
      */
     @Override
     public void close() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
+        getHealth().stop();
+        shutdownExecutors();
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * 產生 MySQL 的 INSERT ... ON DUPLICATE KEY UPDATE 語句。
+     */
+    @Override
+    public String upsert(String table, String[] columns, String[] keyColumns) {
+        StringBuilder update = new StringBuilder();
+        for (String column : columns) {
+            if (Arrays.asList(keyColumns).contains(column)) {
+                continue;
+            }
+            if (update.length() > 0) {
+                update.append(", ");
             }
+            update.append('`').append(column).append("` = VALUES(`").append(column).append("`)");
         }
+        if (update.length() == 0) {
+            // 沒有其他欄位時以主鍵自我更新，達到忽略重複的效果
+            update.append('`').append(keyColumns[0]).append("` = `").append(keyColumns[0]).append('`');
+        }
+        return "INSERT INTO `" + table + "` (`" + String.join("`, `", columns) + "`) VALUES ("
+            + placeholders(columns.length) + ") ON DUPLICATE KEY UPDATE " + update;
     }
 
     /**
@@ -133,74 +241,65 @@ public class MySQL extends AbstractSQL {
      */
     @Override
     public void clearTables(String table) {
-        String clearTable = "TRUNCATE TABLE `" + table + "`";
-        connect();
-        try (Connection conn = mcroguelike.getSql().getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate(clearTable);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        execute("TRUNCATE TABLE `" + table + "`");
     }
 
     @Override
     public String select(String sql, String[] params) {
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                stmt.setString(i + 1, params[i]);
-            }
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                StringBuilder result = new StringBuilder();
-                int columnCount = rs.getMetaData().getColumnCount();
-                for (int i = 1; i <= columnCount; i++) {
-                    if (i > 1) {
-                        result.append(",");
+        try {
+            return withConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) {
+                        stmt.setString(i + 1, params[i]);
+                    }
+                    ResultSet rs = stmt.executeQuery();
+                    if (rs.next()) {
+                        StringBuilder result = new StringBuilder();
+                        int columnCount = rs.getMetaData().getColumnCount();
+                        for (int i = 1; i <= columnCount; i++) {
+                            if (i > 1) {
+                                result.append(",");
+                            }
+                            result.append(rs.getString(i));
+                        }
+                        return result.toString();
                     }
-                    result.append(rs.getString(i));
+                    return null;
                 }
-                return result.toString();
-            }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError("Database query failed: " + sql, e);
         }
         return null;
     }
 
     @Override
     public void insert(String sql, String[] params) {
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                stmt.setString(i + 1, params[i]);
-            }
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        executeUpdate(sql, params);
     }
 
     @Override
     public void update(String sql, String[] params) {
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                stmt.setString(i + 1, params[i]);
-            }
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        executeUpdate(sql, params);
     }
 
     @Override
     public void delete(String sql, String[] params) {
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                stmt.setString(i + 1, params[i]);
-            }
-            stmt.executeUpdate();
+        executeUpdate(sql, params);
+    }
+
+    private void executeUpdate(String sql, String[] params) {
+        try {
+            withConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) {
+                        stmt.setString(i + 1, params[i]);
+                    }
+                    return stmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError("Database update failed: " + sql, e);
         }
     }
-    
-}
\ No newline at end of file
+}
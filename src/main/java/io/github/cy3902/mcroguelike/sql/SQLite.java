@@ -1,6 +1,5 @@
 package io.github.cy3902.mcroguelike.sql;
 
-import io.github.cy3902.mcroguelike.MCRogueLike;
 import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
 
 import java.sql.Connection;
@@ -9,212 +8,388 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * SQLite 資料庫操作類別，繼承自 AbstractsSQL。
  * 該類別用於連接 SQLite 資料庫，並創建所需的資料表。
+ * SQLite 只允許一個寫入者，背景寫入都排入同一個執行緒，與主執行緒共用的寫入連線以同步鎖保護。
+ * 資料庫使用 WAL 模式，查詢使用另一個連線，不會被寫入阻塞。
  */
 public class SQLite extends AbstractSQL {
 
-    private final MCRogueLike mcroguelike = MCRogueLike.getInstance();
-    private static String DATABASE_URL;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    /**
+     * 每個連線開啟時設定的 PRAGMA
+     */
+    private static final String[] PRAGMAS = {
+        "PRAGMA journal_mode = WAL",
+        "PRAGMA synchronous = NORMAL",      // WAL 模式下只在檢查點同步，斷電最多遺失最後的交易
+        "PRAGMA cache_size = -16000",       // 約 16 MB 頁面快取
+        "PRAGMA mmap_size = 268435456",     // 以 256 MB 記憶體映射讀取
+        "PRAGMA temp_store = MEMORY",
+        "PRAGMA busy_timeout = 5000"
+    };
+
+    private final String url;
+    private final boolean separateReadConnection;
+    private final Object readLock = new Object();
+    private Connection readConnection;
+
+    /**
+     * 以 SQL 文字為鍵的語句快取，寫入與查詢連線各有一份，超過上限時關閉最久未使用的語句
+     */
+    private final Map<String, PreparedStatement> statements = newStatementCache();
+    private final Map<String, PreparedStatement> readStatements = newStatementCache();
 
     /**
      * 構造函數，用於初始化 SQLite 資料庫連接信息並創建資料表。
      *
      * @param filepath SQLite 資料庫檔案的路徑
+     * @param uuidStorage UUID 欄位的儲存方式
      */
-    public SQLite(String filepath) {
-        DATABASE_URL = filepath;
+    public SQLite(String filepath, UuidStorage uuidStorage) {
+        this("jdbc:sqlite:" + filepath, true, uuidStorage);
+    }
+
+    /**
+     * 以 JDBC 網址建立資料庫，供記憶體資料庫等變體使用。
+     *
+     * @param url JDBC 網址
+     * @param separateReadConnection 是否另外開啟查詢連線；每個連線各自獨立的資料庫必須為 false
+     * @param uuidStorage UUID 欄位的儲存方式
+     */
+    protected SQLite(String url, boolean separateReadConnection, UuidStorage uuidStorage) {
+        super(uuidStorage);
+        this.url = url;
+        this.separateReadConnection = separateReadConnection;
         connect();
         createTableIfNotExists();
+        startExecutors("MCRogueLike-SQLite", 1);
+    }
+
+    private static Map<String, PreparedStatement> newStatementCache() {
+        return new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= STATEMENT_CACHE_SIZE) {
+                    return false;
+                }
+                try {
+                    eldest.getValue().close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+                return true;
+            }
+        };
     }
 
     /**
-     * 連接到 SQLite 資料庫。
+     * 連接到 SQLite 資料庫，開啟寫入與查詢連線並套用 PRAGMA。
      */
     @Override
-    public void connect() {
+    public synchronized void connect() {
+        synchronized (readLock) {
+            invalidateStatements();
+            closeQuietly(connection);
+            closeQuietly(readConnection);
+            try {
+                this.connection = open();
+                this.readConnection = separateReadConnection ? open() : null;
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : PRAGMAS) {
+                stmt.execute(pragma);
+            }
+        }
+        return conn;
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
         try {
-            this.connection = DriverManager.getConnection("jdbc:sqlite:" + DATABASE_URL);
+            conn.close();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * 如果資料表不存在，則創建所需的資料表。
+     * SQLite 的結構遷移。
      */
     @Override
-    public void createTableIfNotExists() {
-
-        // 創建地圖位置表格
-        String createMapLocationTableSQL = "CREATE TABLE IF NOT EXISTS mcroguelike_map_location ("
+    protected List<Migration> getMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        migrations.add(Migration.of(1, "create base tables",
+            // 地圖位置表格
+            "CREATE TABLE IF NOT EXISTS mcroguelike_map_location ("
                 + "map VARCHAR(255) NOT NULL PRIMARY KEY, "
-                + "X DOUBLE NOT NULL," 
+                + "X DOUBLE NOT NULL,"
                 + "Y DOUBLE NOT NULL,"
                 + "Z DOUBLE NOT NULL"
-                + ");";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createMapLocationTableSQL);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        // 創建玩家路徑表格
-        String createPlayerPathTableSQL = "CREATE TABLE IF NOT EXISTS mcroguelike_party_path ("
+                + ")",
+            // 玩家路徑表格
+            "CREATE TABLE IF NOT EXISTS mcroguelike_party_path ("
                 + "party_uuid VARCHAR(255) NOT NULL PRIMARY KEY, "
                 + "path VARCHAR(255) NOT NULL"
-                + ");";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createPlayerPathTableSQL);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        // 創建結構位置表格
-        String createSchemLocationTableSQL = "CREATE TABLE IF NOT EXISTS mcroguelike_schem ("
+                + ")",
+            // 結構位置表格，僅保留給結構資料索引搬移舊資料
+            "CREATE TABLE IF NOT EXISTS mcroguelike_schem ("
                 + "name VARCHAR(255) NOT NULL PRIMARY KEY, "
                 + "center_x DOUBLE NOT NULL, "
                 + "center_y DOUBLE NOT NULL, "
                 + "center_z DOUBLE NOT NULL "
-                + ");";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createSchemLocationTableSQL);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        // 創建隊伍成員表格
-        String createPartyMemberTableSQL = "CREATE TABLE IF NOT EXISTS mcroguelike_party_member ("
+                + ")",
+            // 隊伍成員表格
+            "CREATE TABLE IF NOT EXISTS mcroguelike_party_member ("
                 + "party_uuid VARCHAR(255) NOT NULL, "
                 + "member_uuid VARCHAR(255) NOT NULL, "
                 + "is_leader Boolean NOT NULL DEFAULT false, "
                 + "PRIMARY KEY (party_uuid, member_uuid)"
-                + ");";
+                + ")"
+        ));
+        migrations.add(Migration.of(2, "index party members by member uuid",
+            "CREATE INDEX IF NOT EXISTS idx_party_member_member ON mcroguelike_party_member (member_uuid)"
+        ));
+        return migrations;
+    }
 
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createPartyMemberTableSQL);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-                
+    @Override
+    public List<String> getPartyTableDefinitions(UuidStorage storage) {
+        String uuidType = storage == UuidStorage.BINARY ? "BLOB" : "VARCHAR(255)";
+        List<String> definitions = new ArrayList<>();
+        definitions.add("CREATE TABLE IF NOT EXISTS mcroguelike_party_path ("
+            + "party_uuid " + uuidType + " NOT NULL PRIMARY KEY, "
+            + "path VARCHAR(255) NOT NULL"
+            + ")");
+        definitions.add("CREATE TABLE IF NOT EXISTS mcroguelike_party_member ("
+            + "party_uuid " + uuidType + " NOT NULL, "
+            + "member_uuid " + uuidType + " NOT NULL, "
+            + "is_leader Boolean NOT NULL DEFAULT false, "
+            + "PRIMARY KEY (party_uuid, member_uuid)"
+            + ")");
+        definitions.add("CREATE INDEX IF NOT EXISTS idx_party_member_member ON mcroguelike_party_member (member_uuid)");
+        return definitions;
     }
 
     /**
-     * 檢查資料庫連接是否有效。
+     * 在逾時內驗證寫入連線，與其他寫入共用同步鎖。
      *
+     * @param timeoutSeconds 逾時（秒）
      * @return 如果連接有效，則返回 true；否則返回 false
      */
     @Override
-    public boolean isConnectionValid() {
-        try {
-            return connection != null && !connection.isClosed();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
+    public synchronized boolean isConnectionValid(int timeoutSeconds) {
+        return super.isConnectionValid(timeoutSeconds);
+    }
+
+    @Override
+    protected synchronized <T> T doWithConnection(ConnectionCallback<T> callback) throws SQLException {
+        return callback.apply(connection);
+    }
+
+    @Override
+    protected <T> T doWithReadConnection(ConnectionCallback<T> callback) throws SQLException {
+        if (!separateReadConnection) {
+            return doWithConnection(callback);
+        }
+        synchronized (readLock) {
+            return callback.apply(readConnection);
         }
     }
 
     /**
-     * 關閉資料庫連接。
+     * 等待寫入佇列完成後關閉資料庫連接。
      */
     @Override
     public void close() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
+        getHealth().stop();
+        shutdownExecutors();
+        synchronized (this) {
+            synchronized (readLock) {
+                invalidateStatements();
+                closeQuietly(readConnection);
+                closeQuietly(connection);
             }
         }
     }
 
+    /**
+     * 產生 SQLite 的 INSERT ... ON CONFLICT DO UPDATE 語句。
+     */
+    @Override
+    public String upsert(String table, String[] columns, String[] keyColumns) {
+        StringBuilder update = new StringBuilder();
+        for (String column : columns) {
+            if (Arrays.asList(keyColumns).contains(column)) {
+                continue;
+            }
+            if (update.length() > 0) {
+                update.append(", ");
+            }
+            update.append('`').append(column).append("` = excluded.`").append(column).append('`');
+        }
+        return "INSERT INTO `" + table + "` (`" + String.join("`, `", columns) + "`) VALUES ("
+            + placeholders(columns.length) + ") ON CONFLICT (`" + String.join("`, `", keyColumns) + "`) "
+            + (update.length() > 0 ? "DO UPDATE SET " + update : "DO NOTHING");
+    }
+
     /**
      * 清空指定的資料表。
      *
      * @param table 資料表名稱
      */
     @Override
-    public void clearTables(String table) {
+    public synchronized void clearTables(String table) {
         String clearTable = "DELETE FROM `" + table + "`";
-        connect();
-        try (Connection conn = mcroguelike.getSql().getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate(clearTable);
+        try {
+            withConnection(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    return stmt.executeUpdate(clearTable);
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError("Failed to clear table " + table, e);
         }
     }
 
     @Override
     public String select(String sql, String[] params) {
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                stmt.setString(i + 1, params[i]);
-            }
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                StringBuilder result = new StringBuilder();
-                int columnCount = rs.getMetaData().getColumnCount();
-                for (int i = 1; i <= columnCount; i++) {
-                    if (i > 1) {
-                        result.append(",");
+        try {
+            return withReadConnection(conn -> {
+                PreparedStatement stmt = prepare(conn, sql);
+                try {
+                    bind(stmt, params);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            StringBuilder result = new StringBuilder();
+                            int columnCount = rs.getMetaData().getColumnCount();
+                            for (int i = 1; i <= columnCount; i++) {
+                                if (i > 1) {
+                                    result.append(",");
+                                }
+                                result.append(rs.getString(i));
+                            }
+                            return result.toString();
+                        }
                     }
-                    result.append(rs.getString(i));
+                } finally {
+                    release(stmt);
                 }
-                return result.toString();
-            }
+                return null;
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError("Database query failed: " + sql, e);
         }
         return null;
     }
 
     @Override
-    public void insert(String sql, String[] params) {
+    public synchronized void insert(String sql, String[] params) {
         // 將 MySQL 的 INSERT ... ON DUPLICATE KEY UPDATE 轉換為 SQLite 的 INSERT OR REPLACE
         if (sql.contains("ON DUPLICATE KEY UPDATE")) {
             sql = sql.substring(0, sql.indexOf("ON DUPLICATE KEY UPDATE")).trim();
             sql = sql.replace("INSERT INTO", "INSERT OR REPLACE INTO");
         }
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                stmt.setString(i + 1, params[i]);
-            }
-            stmt.executeUpdate();
+        executeUpdate(sql, params);
+    }
+
+    @Override
+    public synchronized void update(String sql, String[] params) {
+        executeUpdate(sql, params);
+    }
+
+    @Override
+    public synchronized void delete(String sql, String[] params) {
+        executeUpdate(sql, params);
+    }
+
+    private void executeUpdate(String sql, String[] params) {
+        try {
+            withConnection(conn -> {
+                PreparedStatement stmt = prepare(conn, sql);
+                try {
+                    bind(stmt, params);
+                    return stmt.executeUpdate();
+                } finally {
+                    release(stmt);
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError("Database update failed: " + sql, e);
         }
     }
 
+    /**
+     * 從連線對應的快取取得已編譯的語句，不存在時編譯並放入快取；
+     * 呼叫時必須持有該連線的鎖
+     */
     @Override
-    public void update(String sql, String[] params) {
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                stmt.setString(i + 1, params[i]);
-            }
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    protected PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        Map<String, PreparedStatement> cache = conn == readConnection ? readStatements : statements;
+        PreparedStatement stmt = cache.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = conn.prepareStatement(sql);
+            cache.put(sql, stmt);
         }
+        return stmt;
     }
 
+    /**
+     * 清除參數後保留語句供下次使用
+     */
     @Override
-    public void delete(String sql, String[] params) {
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                stmt.setString(i + 1, params[i]);
+    protected void release(PreparedStatement stmt) throws SQLException {
+        stmt.clearParameters();
+    }
+
+    /**
+     * 關閉並清除所有快取的語句，重新連線或關閉連線前呼叫
+     */
+    public void invalidateStatements() {
+        synchronized (this) {
+            synchronized (readLock) {
+                closeAll(statements);
+                closeAll(readStatements);
+            }
+        }
+    }
+
+    private static void closeAll(Map<String, PreparedStatement> cache) {
+        for (PreparedStatement stmt : cache.values()) {
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
             }
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
+        cache.clear();
     }
-    
 
-}
\ No newline at end of file
+    /**
+     * 獲取快取的語句數量
+     * @return 語句數量
+     */
+    public int getCachedStatementCount() {
+        synchronized (this) {
+            synchronized (readLock) {
+                return statements.size() + readStatements.size();
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package io.github.cy3902.mcroguelike.sql;
+
+import io.github.cy3902.mcroguelike.abstracts.AbstractSQL;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * 資料庫結構遷移器
+ * 在 mcroguelike_meta 資料表記錄目前的結構版本，啟動時依序執行尚未套用的遷移
+ */
+public class SchemaMigrator {
+    public static final String META_TABLE = "mcroguelike_meta";
+    private static final String VERSION_KEY = "schema_version";
+    private static final String UUID_STORAGE_KEY = "uuid_storage";
+
+    /**
+     * 儲存 UUID 的資料表與欄位
+     */
+    private static final String[][] UUID_TABLES = {
+        {"mcroguelike_party_member", "party_uuid", "member_uuid"},
+        {"mcroguelike_party_path", "party_uuid"}
+    };
+
+    private final AbstractSQL sql;
+
+    /**
+     * 建構子
+     * @param sql 資料庫
+     */
+    public SchemaMigrator(AbstractSQL sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * 執行所有版本高於目前版本的遷移，任一遷移失敗時停止
+     * @param migrations 遷移列表
+     * @return 遷移後的結構版本
+     */
+    public int migrate(List<Migration> migrations) {
+        try {
+            sql.withConnection(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS " + META_TABLE + " ("
+                        + "meta_key VARCHAR(64) NOT NULL PRIMARY KEY, "
+                        + "meta_value VARCHAR(255) NOT NULL"
+                        + ")");
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            sql.getLogger().log(Level.SEVERE, "Failed to create schema version table", e);
+            return 0;
+        }
+
+        int version = getCurrentVersion();
+        List<Migration> ordered = new ArrayList<>(migrations);
+        ordered.sort(Comparator.comparingInt(Migration::getVersion));
+        for (Migration migration : ordered) {
+            if (migration.getVersion() <= version) {
+                continue;
+            }
+            try {
+                sql.inTransaction(conn -> {
+                    migration.apply(conn);
+                    setMeta(conn, VERSION_KEY, String.valueOf(migration.getVersion()));
+                    return null;
+                });
+            } catch (SQLException e) {
+                sql.getLogger().log(Level.SEVERE, "Failed to apply database migration " + migration.getVersion()
+                    + " (" + migration.getDescription() + ")", e);
+                break;
+            }
+            version = migration.getVersion();
+            sql.getLogger().log(Level.INFO, "Applied database migration " + version + ": " + migration.getDescription());
+        }
+        return version;
+    }
+
+    /**
+     * 讀取目前的結構版本
+     * @return 版本號，尚未記錄時為 0
+     */
+    public int getCurrentVersion() {
+        String value = getMeta(VERSION_KEY);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 儲存方式與資料庫記錄的不同時，重建隊伍資料表並轉換所有 UUID 欄位
+     * MySQL 的 DDL 會自動提交，轉換途中失敗時需要從備份還原
+     * @param target 設定的儲存方式
+     */
+    public void convertUuidStorage(AbstractSQL.UuidStorage target) {
+        AbstractSQL.UuidStorage current = getUuidStorage();
+        if (current == target) {
+            return;
+        }
+        try {
+            int converted = sql.inTransaction(conn -> {
+                // 先以舊的儲存方式讀出所有資料
+                Map<String, List<Object[]>> tables = new LinkedHashMap<>();
+                Map<String, List<String>> columns = new LinkedHashMap<>();
+                for (String[] table : UUID_TABLES) {
+                    List<String> uuidColumns = Arrays.asList(table).subList(1, table.length);
+                    List<Object[]> rows = new ArrayList<>();
+                    List<String> names = new ArrayList<>();
+                    try (Statement stmt = conn.createStatement();
+                         ResultSet rs = stmt.executeQuery("SELECT * FROM " + table[0])) {
+                        ResultSetMetaData meta = rs.getMetaData();
+                        for (int i = 1; i <= meta.getColumnCount(); i++) {
+                            names.add(meta.getColumnName(i));
+                        }
+                        while (rs.next()) {
+                            Object[] row = new Object[names.size()];
+                            for (int i = 0; i < names.size(); i++) {
+                                row[i] = uuidColumns.contains(names.get(i))
+                                    ? AbstractSQL.readUuid(rs, names.get(i), current)
+                                    : rs.getObject(i + 1);
+                            }
+                            rows.add(row);
+                        }
+                    }
+                    tables.put(table[0], rows);
+                    columns.put(table[0], names);
+                }
+
+                // 以新的欄位型別重建資料表
+                try (Statement stmt = conn.createStatement()) {
+                    for (String table : tables.keySet()) {
+                        stmt.execute("DROP TABLE IF EXISTS " + table);
+                    }
+                    for (String definition : sql.getPartyTableDefinitions(target)) {
+                        stmt.execute(definition);
+                    }
+                }
+
+                // 以新的儲存方式寫回
+                int count = 0;
+                for (Map.Entry<String, List<Object[]>> entry : tables.entrySet()) {
+                    List<String> names = columns.get(entry.getKey());
+                    String insert = "INSERT INTO " + entry.getKey() + " (" + String.join(", ", names) + ") VALUES ("
+                        + String.join(", ", Collections.nCopies(names.size(), "?")) + ")";
+                    try (PreparedStatement stmt = conn.prepareStatement(insert)) {
+                        for (Object[] row : entry.getValue()) {
+                            for (int i = 0; i < row.length; i++) {
+                                if (row[i] instanceof UUID) {
+                                    sql.bindUuid(stmt, i + 1, (UUID) row[i]);
+                                } else {
+                                    stmt.setObject(i + 1, row[i]);
+                                }
+                            }
+                            stmt.addBatch();
+                            count++;
+                        }
+                        stmt.executeBatch();
+                    }
+                }
+                setMeta(conn, UUID_STORAGE_KEY, target.name());
+                return count;
+            });
+            sql.getLogger().log(Level.INFO, "Converted " + converted + " party rows from " + current + " to " + target + " uuid storage");
+        } catch (SQLException | RuntimeException e) {
+            sql.getLogger().log(Level.SEVERE, "Failed to convert uuid storage from " + current + " to " + target, e);
+        }
+    }
+
+    /**
+     * 讀取資料庫記錄的 UUID 儲存方式
+     * @return 儲存方式，尚未記錄時為文字
+     */
+    public AbstractSQL.UuidStorage getUuidStorage() {
+        String value = getMeta(UUID_STORAGE_KEY);
+        if (value == null) {
+            return AbstractSQL.UuidStorage.STRING;
+        }
+        try {
+            return AbstractSQL.UuidStorage.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return AbstractSQL.UuidStorage.STRING;
+        }
+    }
+
+    private String getMeta(String key) {
+        return sql.queryFirst(
+            "SELECT meta_value FROM " + META_TABLE + " WHERE meta_key = ?",
+            new Object[]{key},
+            rs -> rs.getString("meta_value")
+        );
+    }
+
+    private void setMeta(Connection conn, String key, String value) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                sql.upsert(META_TABLE, new String[]{"meta_key", "meta_value"}, new String[]{"meta_key"}))) {
+            stmt.setString(1, key);
+            stmt.setString(2, value);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.cy3902.mcroguelike.utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 逐一讀取 JSON 元素的讀取器，不會建立 JSONObject 或 JSONArray。
+ * 物件與陣列中的每個元素之前都要呼叫一次 hasNext，格式錯誤時拋出 JSONException。
+ */
+public class JsonStreamReader implements Closeable {
+    private final Reader reader;
+    private final JSONTokener tokener;
+
+    /**
+     * 每一層物件或陣列是否還沒有讀過元素
+     */
+    private final Deque<Boolean> first = new ArrayDeque<>();
+    private boolean peeked;
+
+    /**
+     * 建構子
+     * @param reader 來源
+     */
+    public JsonStreamReader(Reader reader) {
+        this.reader = reader;
+        this.tokener = new JSONTokener(reader);
+    }
+
+    public void beginObject() {
+        expect('{');
+        first.push(true);
+    }
+
+    public void endObject() {
+        expect('}');
+        first.pop();
+    }
+
+    public void beginArray() {
+        expect('[');
+        first.push(true);
+    }
+
+    public void endArray() {
+        expect(']');
+        first.pop();
+    }
+
+    /**
+     * 檢查目前的物件或陣列是否還有元素，並略過元素之間的逗號
+     * @return 還有元素時返回 true
+     */
+    public boolean hasNext() {
+        if (peeked) {
+            return true;
+        }
+        char c = tokener.nextClean();
+        if (c == '}' || c == ']') {
+            tokener.back();
+            return false;
+        }
+        if (c == 0) {
+            throw tokener.syntaxError("Unexpected end of input");
+        }
+        if (first.pop()) {
+            tokener.back();
+        } else if (c != ',') {
+            throw tokener.syntaxError("Expected ','");
+        }
+        first.push(false);
+        peeked = true;
+        return true;
+    }
+
+    /**
+     * 讀取物件中下一個元素的名稱
+     * @return 名稱
+     */
+    public String nextName() {
+        peeked = false;
+        char quote = tokener.nextClean();
+        if (quote != '"' && quote != '\'') {
+            throw tokener.syntaxError("Expected a name");
+        }
+        String name = tokener.nextString(quote);
+        expect(':');
+        return name;
+    }
+
+    /**
+     * 讀取字串
+     * @return 字串，值為 null 時返回 null
+     */
+    public String nextString() {
+        Object value = nextScalar();
+        return value == JSONObject.NULL ? null : value.toString();
+    }
+
+    public int nextInt() {
+        return nextNumber().intValue();
+    }
+
+    public long nextLong() {
+        return nextNumber().longValue();
+    }
+
+    public double nextDouble() {
+        return nextNumber().doubleValue();
+    }
+
+    public boolean nextBoolean() {
+        Object value = nextScalar();
+        if (!(value instanceof Boolean)) {
+            throw tokener.syntaxError("Expected a boolean");
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * 略過下一個值，包含整個物件或陣列
+     */
+    public void skipValue() {
+        peeked = false;
+        char c = tokener.nextClean();
+        tokener.back();
+        if (c == '{') {
+            beginObject();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+        } else if (c == '[') {
+            beginArray();
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+        } else {
+            nextScalar();
+        }
+    }
+
+    private Number nextNumber() {
+        Object value = nextScalar();
+        if (!(value instanceof Number)) {
+            throw tokener.syntaxError("Expected a number");
+        }
+        return (Number) value;
+    }
+
+    private Object nextScalar() {
+        peeked = false;
+        char c = tokener.nextClean();
+        if (c == '{' || c == '[' || c == 0) {
+            throw tokener.syntaxError("Expected a value");
+        }
+        tokener.back();
+        return tokener.nextValue();
+    }
+
+    private void expect(char expected) throws JSONException {
+        peeked = false;
+        if (tokener.nextClean() != expected) {
+            throw tokener.syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}